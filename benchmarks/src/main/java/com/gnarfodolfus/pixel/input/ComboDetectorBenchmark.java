@@ -0,0 +1,54 @@
+package com.gnarfodolfus.pixel.input;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.lwjgl.glfw.GLFW;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Per-frame combo matching with a growing number of registered combos. The
+ * cost of a frame should not depend on the number of combos.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComboDetectorBenchmark {
+
+    @Param({"10", "1000"})
+    public int combos;
+
+    private final InputEventQueue queue = new InputEventQueue(1024);
+    private final InputEvents events = new InputEvents(1024);
+    private final Keyboard keyboard = new Keyboard(queue, events);
+    private final ComboDetector detector = new ComboDetector();
+
+    private int frame;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        for (int c = 0; c < combos; c++) {
+            int[] symbols = new int[3 + random.nextInt(6)];
+            for (int i = 0; i < symbols.length; i++)
+                symbols[i] = ComboDetector.key(GLFW.GLFW_KEY_A + random.nextInt(26));
+            detector.define("combo" + c, 1000, symbols);
+        }
+        detector.compile();
+    }
+
+    /**
+     * A frame with one letter key going down and the combo update.
+     */
+    @Benchmark
+    public ComboDetector frame() {
+        int key = GLFW.GLFW_KEY_A + (frame++ * 7) % 26;
+        keyboard.keyboardHandler.onKey(key, 0, GLFW.GLFW_PRESS, 0);
+        keyboard.keyboardHandler.onKey(key, 0, GLFW.GLFW_RELEASE, 0);
+        queue.drainTo(events);
+        detector.update(events, null);
+        return detector;
+    }
+}
@@ -0,0 +1,161 @@
+package com.gnarfodolfus.pixel.input;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+import org.lwjgl.glfw.GLFW;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FixedBitSetBenchmark {
+
+    private static final int SIZE = GLFW.GLFW_KEY_LAST + 1;
+
+    private final FixedBitSet a = new FixedBitSet(SIZE);
+    private final FixedBitSet b = new FixedBitSet(SIZE);
+    private final FixedBitSet dst = new FixedBitSet(SIZE);
+    private final int[] buffer = new int[16];
+    private final FixedBitSet.SetBitIterator iterator = new FixedBitSet.SetBitIterator();
+
+    // Raw arrays of the same size as the keyboard bitset to compare the copy
+    // loop in FixedBitSet.set against System.arraycopy
+    private final long[] srcWords = new long[(SIZE + 63) >> 6];
+    private final long[] dstWords = new long[(SIZE + 63) >> 6];
+
+    // Button states of a joystick with many buttons, one byte per button
+    // like glfwGetJoystickButtons returns them
+    private static final int BUTTONS = 128;
+    private final ByteBuffer buttonStates = ByteBuffer.allocateDirect(BUTTONS).order(ByteOrder.nativeOrder());
+    private final FixedBitSet buttons = new FixedBitSet(BUTTONS);
+
+    @Setup
+    public void setup() {
+        a.set(GLFW.GLFW_KEY_W);
+        a.set(GLFW.GLFW_KEY_LEFT_SHIFT);
+        a.set(GLFW.GLFW_KEY_SPACE);
+        b.set(GLFW.GLFW_KEY_W);
+        b.set(GLFW.GLFW_KEY_A);
+        for (int i = 0; i < srcWords.length; i++)
+            srcWords[i] = 0x0123456789abcdefL * (i + 1);
+        for (int i = 0; i < BUTTONS; i += 3)
+            buttonStates.put(i, (byte) GLFW.GLFW_PRESS);
+    }
+
+    @Benchmark
+    public FixedBitSet set() {
+        dst.set(a);
+        return dst;
+    }
+
+    @Benchmark
+    public long[] copyLoop() {
+        for (int i = 0; i < srcWords.length; i++)
+            dstWords[i] = srcWords[i];
+        return dstWords;
+    }
+
+    @Benchmark
+    public long[] copyArraycopy() {
+        System.arraycopy(srcWords, 0, dstWords, 0, srcWords.length);
+        return dstWords;
+    }
+
+    @Benchmark
+    public FixedBitSet xorAnd() {
+        return a.xorAnd(b);
+    }
+
+    @Benchmark
+    public FixedBitSet orAndNot() {
+        dst.clear();
+        dst.orAndNot(a, b);
+        return dst;
+    }
+
+    @Benchmark
+    public FixedBitSet orInPlace() {
+        dst.or(a);
+        return dst;
+    }
+
+    @Benchmark
+    public FixedBitSet andNotInto() {
+        dst.andNot(a, b);
+        return dst;
+    }
+
+    /**
+     * The same as {@link #andNotInto()} through the word accessors, for
+     * comparison with the array loop.
+     */
+    @Benchmark
+    public FixedBitSet andNotWords() {
+        for (int i = 0; i < dst.getWordCount(); i++)
+            dst.setWord(i, a.getWord(i) & ~b.getWord(i));
+        return dst;
+    }
+
+    @Benchmark
+    public boolean intersects() {
+        return a.intersects(b);
+    }
+
+    @Benchmark
+    public boolean containsAll() {
+        return a.containsAll(b);
+    }
+
+    @Benchmark
+    public void iterator(Blackhole bh) {
+        for (iterator.reset(a); iterator.hasNext();)
+            bh.consume(iterator.nextInt());
+    }
+
+    @Benchmark
+    public boolean isEmpty() {
+        return a.isEmpty();
+    }
+
+    @Benchmark
+    public int cardinality() {
+        return a.cardinality();
+    }
+
+    @Benchmark
+    public int getSetBits() {
+        return a.getSetBits(buffer);
+    }
+
+    @Benchmark
+    public int getSetBitsTotal() {
+        return a.getSetBitsTotal(buffer);
+    }
+
+    @Benchmark
+    public void forEachSetBit(Blackhole bh) {
+        a.forEachSetBit(bh::consume);
+    }
+
+    @Benchmark
+    public FixedBitSet setFromBytes() {
+        buttons.set(buttonStates, BUTTONS);
+        return buttons;
+    }
+
+    /**
+     * The same as {@link #setFromBytes()} one byte at a time, for comparison
+     * with the packed conversion.
+     */
+    @Benchmark
+    public FixedBitSet setFromBytesLoop() {
+        for (int i = 0; i < BUTTONS; i++)
+            buttons.set(i, buttonStates.get(i) != 0);
+        return buttons;
+    }
+}
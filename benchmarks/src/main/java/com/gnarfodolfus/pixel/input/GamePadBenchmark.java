@@ -0,0 +1,47 @@
+package com.gnarfodolfus.pixel.input;
+
+import java.util.concurrent.TimeUnit;
+import org.lwjgl.glfw.GLFW;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Button conversion and axis processing of the gamepad state. Uses states as
+ * returned by the input backend, so no gamepad needs to be connected.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GamePadBenchmark {
+
+    private final byte[] buttons = new byte[GamePad.BUTTONS_COUNT];
+    private final float[] axes = new float[GamePad.AXES_COUNT];
+    private final AxisPipeline pipeline = new AxisPipeline();
+
+    @Setup
+    public void setup() {
+        buttons[GLFW.GLFW_GAMEPAD_BUTTON_A] = GLFW.GLFW_PRESS;
+        buttons[GLFW.GLFW_GAMEPAD_BUTTON_DPAD_LEFT] = GLFW.GLFW_PRESS;
+        axes[GLFW.GLFW_GAMEPAD_AXIS_LEFT_X] = 0.7f;
+        axes[GLFW.GLFW_GAMEPAD_AXIS_LEFT_Y] = -0.3f;
+        axes[GLFW.GLFW_GAMEPAD_AXIS_LEFT_TRIGGER] = -1f;
+        axes[GLFW.GLFW_GAMEPAD_AXIS_RIGHT_TRIGGER] = 0.5f;
+        pipeline.setRadialDeadZone(GLFW.GLFW_GAMEPAD_AXIS_LEFT_X, 0.15f, 0.95f);
+        pipeline.setResponseCurve(GLFW.GLFW_GAMEPAD_AXIS_LEFT_X, 2f);
+        pipeline.setDeadZone(GLFW.GLFW_GAMEPAD_AXIS_RIGHT_X, 0.1f, 1f);
+        pipeline.setSmoothing(GLFW.GLFW_GAMEPAD_AXIS_RIGHT_TRIGGER, 0.05f);
+    }
+
+    @Benchmark
+    public int toBitset() {
+        return GamePad.toBitset(buttons);
+    }
+
+    @Benchmark
+    public int axisPipeline() {
+        pipeline.process(axes, 0.016f);
+        return pipeline.getButtons();
+    }
+}
@@ -0,0 +1,106 @@
+package com.gnarfodolfus.pixel.input;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.TimeUnit;
+import org.lwjgl.glfw.GLFW;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Encoding and decoding of a frame against the previous frame with a held
+ * key, a moving mouse and one gamepad stick in motion, and the round trip of
+ * the encoded frame over a loopback datagram socket. The size of the encoded
+ * frame is reported as the {@code bytes} counter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputCodecBenchmark {
+
+    private final InputCodec codec = new InputCodec(8);
+    private final InputSnapshot baseline = new InputSnapshot();
+    private final InputSnapshot frame = new InputSnapshot();
+    private final InputSnapshot decoded = new InputSnapshot();
+    private final ByteBuffer encoded = ByteBuffer.allocateDirect(1024);
+    private final ByteBuffer received = ByteBuffer.allocateDirect(1024);
+
+    private DatagramChannel sender;
+    private DatagramChannel receiver;
+    private InetSocketAddress target;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+
+        public long bytes;
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        baseline.frame = 41;
+        baseline.keys.set(GLFW.GLFW_KEY_W);
+        baseline.mouseX = 400.0;
+        baseline.mouseY = 300.0;
+        baseline.padsConnected = 1;
+        baseline.padAxes[GLFW.GLFW_GAMEPAD_AXIS_LEFT_X] = 0.25f;
+
+        frame.copy(baseline);
+        frame.frame = 42;
+        frame.keys.set(GLFW.GLFW_KEY_LEFT_SHIFT);
+        frame.keysDown.set(GLFW.GLFW_KEY_LEFT_SHIFT);
+        frame.mouseX = 403.0;
+        frame.mouseY = 301.0;
+        frame.movementX = 3.0;
+        frame.movementY = 1.0;
+        frame.padAxes[GLFW.GLFW_GAMEPAD_AXIS_LEFT_X] = 0.5f;
+
+        receiver = DatagramChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        sender = DatagramChannel.open();
+        target = (InetSocketAddress) receiver.getLocalAddress();
+        sender.connect(target);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        sender.close();
+        receiver.close();
+    }
+
+    @Benchmark
+    public ByteBuffer encode(EncodedSize size) {
+        encoded.clear();
+        codec.encode(frame, baseline, encoded);
+        size.bytes = encoded.position();
+        return encoded;
+    }
+
+    @Benchmark
+    public InputSnapshot roundTrip(EncodedSize size) {
+        encoded.clear();
+        codec.encode(frame, baseline, encoded);
+        size.bytes = encoded.position();
+        encoded.flip();
+        codec.decode(encoded, baseline, decoded);
+        return decoded;
+    }
+
+    @Benchmark
+    public InputSnapshot loopback(EncodedSize size) throws IOException {
+        encoded.clear();
+        codec.encode(frame, baseline, encoded);
+        size.bytes = encoded.position();
+        encoded.flip();
+        sender.write(encoded);
+        received.clear();
+        receiver.receive(received);
+        received.flip();
+        codec.decode(received, baseline, decoded);
+        return decoded;
+    }
+}
@@ -0,0 +1,87 @@
+package com.gnarfodolfus.pixel.input;
+
+import java.util.concurrent.TimeUnit;
+import org.lwjgl.glfw.GLFW;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pixel.commons.DeltaTime;
+
+/**
+ * Per-frame keyboard path. Key events are fed directly into the key listener,
+ * so no window is needed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyboardBenchmark {
+
+    private final InputEventQueue queue = new InputEventQueue(1024);
+    private final InputEvents events = new InputEvents(1024);
+    private final Keyboard keyboard = new Keyboard(queue, events);
+    private final DeltaTime dt = new DeltaTime();
+    private final int[] buffer = new int[16];
+
+    private int frame;
+
+    @Setup
+    public void setup() {
+        keyboard.keyboardHandler.onKey(GLFW.GLFW_KEY_W, 0, GLFW.GLFW_PRESS, 0);
+        keyboard.keyboardHandler.onKey(GLFW.GLFW_KEY_LEFT_SHIFT, 0, GLFW.GLFW_PRESS, 0);
+        frame();
+    }
+
+    /**
+     * A frame with one key going down or up and the state update.
+     */
+    @Benchmark
+    public Keyboard frame() {
+        int action = (frame++ & 1) == 0 ? GLFW.GLFW_PRESS : GLFW.GLFW_RELEASE;
+        keyboard.keyboardHandler.onKey(GLFW.GLFW_KEY_SPACE, 0, action, 0);
+        queue.drainTo(events);
+        keyboard.update(dt);
+        return keyboard;
+    }
+
+    @Benchmark
+    public boolean getKeyDown() {
+        return keyboard.getKeyDown(GLFW.GLFW_KEY_SPACE);
+    }
+
+    @Benchmark
+    public int[] getKeys() {
+        return keyboard.getKeys();
+    }
+
+    @Benchmark
+    public int[] getKeysDown() {
+        return keyboard.getKeysDown();
+    }
+
+    @Benchmark
+    public int[] getKeysUp() {
+        return keyboard.getKeysUp();
+    }
+
+    @Benchmark
+    public int getKeysBuffer() {
+        return keyboard.getKeys(buffer);
+    }
+
+    @Benchmark
+    public int getKeysDownBuffer() {
+        return keyboard.getKeysDown(buffer);
+    }
+
+    @Benchmark
+    public int getKeysUpBuffer() {
+        return keyboard.getKeysUp(buffer);
+    }
+
+    @Benchmark
+    public void getKeysVisitor(Blackhole bh) {
+        keyboard.getKeys(bh::consume);
+    }
+}
@@ -0,0 +1,60 @@
+package com.gnarfodolfus.pixel.input;
+
+import java.util.concurrent.TimeUnit;
+import org.lwjgl.glfw.GLFW;
+import org.openjdk.jmh.annotations.*;
+import org.pixel.commons.DeltaTime;
+import org.pixel.math.Vector2;
+
+/**
+ * Per-frame mouse path. Cursor and button events are fed directly into the
+ * listeners, so no window is needed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MouseBenchmark {
+
+    private final InputEventQueue queue = new InputEventQueue(1024);
+    private final InputEvents events = new InputEvents(1024);
+    private final Mouse mouse = new Mouse(queue, events);
+    private final DeltaTime dt = new DeltaTime();
+
+    private int frame;
+
+    /**
+     * A frame with cursor motion, a scroll step, one button going down or up
+     * and the state update.
+     */
+    @Benchmark
+    public Mouse frame() {
+        int f = frame++;
+        int action = (f & 1) == 0 ? GLFW.GLFW_PRESS : GLFW.GLFW_RELEASE;
+        mouse.positionHandler.onCursorPos(f & 1023, (f >> 1) & 1023);
+        mouse.scrollHandler.onScroll(0.0, 1.0);
+        mouse.buttonHandler.onMouseButton(GLFW.GLFW_MOUSE_BUTTON_1, action, 0);
+        queue.drainTo(events);
+        mouse.update(dt);
+        return mouse;
+    }
+
+    private final Vector2 movement = new Vector2();
+
+    @Benchmark
+    public Vector2 getMovement() {
+        return mouse.getMovement(movement);
+    }
+
+    @Benchmark
+    public double getMovementX() {
+        return mouse.getMovementX();
+    }
+
+    @Benchmark
+    public boolean getButtonDown() {
+        return mouse.getButtonDown(GLFW.GLFW_MOUSE_BUTTON_1);
+    }
+}
@@ -0,0 +1,443 @@
+package com.gnarfodolfus.pixel.input;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Maps named actions to keys, mouse buttons, gamepad buttons and gamepad axis
+ * thresholds. Bindings are compiled into flat bit masks, so evaluating all
+ * actions once per frame only costs a few word-wide ANDs per action. Create
+ * one map per player and call {@link #update} once per frame after
+ * {@link Input#update}:
+ *
+ * <pre>
+ * ActionMap actions = new ActionMap();
+ * int jump = actions.define("jump");
+ * actions.bindKey(jump, GLFW.GLFW_KEY_SPACE);
+ * actions.bindGamePadButton(jump, GLFW.GLFW_GAMEPAD_BUTTON_A);
+ * ...
+ * actions.update(Input.getKeyboard(), Input.getMouse(), Input.getGamePad());
+ * if (actions.isPressed(jump)) ...
+ * </pre>
+ *
+ * An action is either triggered by <i>any</i> of its bound inputs (default)
+ * or only by <i>all</i> of them at once, e.g. for key chords. Binding is not
+ * meant to be done while playing, it allocates and recompiles the map.
+ */
+public final class ActionMap {
+
+    /**
+     * The action is held if any of its bound inputs is held.
+     */
+    public static final int ANY = 0;
+
+    /**
+     * The action is held if all of its bound inputs are held.
+     */
+    public static final int ALL = 1;
+
+    /**
+     * Maximum number of distinct axis thresholds per map.
+     */
+    public static final int MAX_AXIS_BINDINGS = 64;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    // Bind-time state, one entry per action
+    private final List<FixedBitSet> keyBindings = new ArrayList<>();
+    private int[] modes = new int[16];
+    private int[] mouseBindings = new int[16];
+    private int[] padBindings = new int[16];
+    private long[] axisBindings = new long[16];
+
+    // Distinct axis conditions, the bit index in axisBindings
+    private final int[] axisIds = new int[MAX_AXIS_BINDINGS];
+    private final float[] axisThresholds = new float[MAX_AXIS_BINDINGS];
+    private int axisCount;
+
+    // Compiled state. Per action the non-zero keyboard words are stored in
+    // keyWords/keyMasks in the range keyStart[action]..keyStart[action + 1]
+    private boolean compiled;
+    private int[] keyStart = new int[1];
+    private int[] keyWords = new int[0];
+    private long[] keyMasks = new long[0];
+    private boolean[] bound = new boolean[0];
+
+    private FixedBitSet held = new FixedBitSet(1);
+    private FixedBitSet lastHeld = new FixedBitSet(1);
+    private FixedBitSet pressed = new FixedBitSet(1);
+    private FixedBitSet released = new FixedBitSet(1);
+
+    private long axisState;
+    private long lastAxisState;
+
+    /**
+     * Defines a new action triggered by any of its bound inputs. If an action
+     * with that name already exists its ID is returned.
+     *
+     * @param name Action name
+     * @return Action ID
+     */
+    public int define(String name) {
+        return define(name, ANY);
+    }
+
+    /**
+     * Defines a new action. If an action with that name already exists its ID
+     * is returned and its mode is changed.
+     *
+     * @param name Action name
+     * @param mode Either {@link #ANY} or {@link #ALL}
+     * @return Action ID
+     */
+    public int define(String name, int mode) {
+        if (mode != ANY && mode != ALL)
+            throw new IllegalArgumentException("Invalid mode: " + mode);
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            ids.put(name, id);
+            names.add(name);
+            keyBindings.add(new FixedBitSet(Keyboard.KEYBOARD_SIZE));
+            if (id >= modes.length) {
+                int capacity = modes.length * 2;
+                modes = Arrays.copyOf(modes, capacity);
+                mouseBindings = Arrays.copyOf(mouseBindings, capacity);
+                padBindings = Arrays.copyOf(padBindings, capacity);
+                axisBindings = Arrays.copyOf(axisBindings, capacity);
+            }
+        }
+        modes[id] = mode;
+        compiled = false;
+        return id;
+    }
+
+    /**
+     * Returns the ID of the action with the given name.
+     *
+     * @param name Action name
+     * @return Action ID or -1 if there is no such action
+     */
+    public int getId(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    public String getName(int action) {
+        return names.get(action);
+    }
+
+    /**
+     * Returns the number of defined actions. Action IDs range from zero to
+     * {@code size() - 1}.
+     *
+     * @return Number of actions
+     */
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * Binds a key to the action.
+     *
+     * @param action Action ID
+     * @param key Key ID according to GLFW, e.g. {@link GLFW#GLFW_KEY_A}
+     */
+    public void bindKey(int action, int key) {
+        checkAction(action);
+        if (key < 0 || key >= Keyboard.KEYBOARD_SIZE)
+            throw new IllegalArgumentException("Invalid key: " + key);
+        keyBindings.get(action).set(key);
+        compiled = false;
+    }
+
+    /**
+     * Binds a mouse button to the action.
+     *
+     * @param action Action ID
+     * @param button Button ID according to GLFW, e.g.
+     * {@link GLFW#GLFW_MOUSE_BUTTON_1}
+     */
+    public void bindMouseButton(int action, int button) {
+        checkAction(action);
+        mouseBindings[action] |= 1 << checkButton(button);
+        compiled = false;
+    }
+
+    /**
+     * Binds a gamepad button to the action.
+     *
+     * @param action Action ID
+     * @param button Button ID according to GLFW, e.g.
+     * {@link GLFW#GLFW_GAMEPAD_BUTTON_A}
+     */
+    public void bindGamePadButton(int action, int button) {
+        checkAction(action);
+        padBindings[action] |= 1 << checkButton(button);
+        compiled = false;
+    }
+
+    /**
+     * Binds a gamepad axis threshold to the action. A positive threshold is
+     * held while the axis value is greater than or equal to the threshold, a
+     * negative threshold is held while the axis value is less than or equal
+     * to the threshold.
+     *
+     * @param action Action ID
+     * @param axis Axis ID according to GLFW, e.g.
+     * {@link GLFW#GLFW_GAMEPAD_AXIS_LEFT_X}
+     * @param threshold Axis threshold, must not be zero
+     */
+    public void bindGamePadAxis(int action, int axis, float threshold) {
+        checkAction(action);
+        if (threshold == 0f || Float.isNaN(threshold))
+            throw new IllegalArgumentException("Invalid threshold: " + threshold);
+        int index = 0;
+        while (index < axisCount && (axisIds[index] != axis || axisThresholds[index] != threshold))
+            index++;
+        if (index == axisCount) {
+            if (axisCount == MAX_AXIS_BINDINGS)
+                throw new IllegalStateException("Too many axis bindings");
+            axisIds[index] = axis;
+            axisThresholds[index] = threshold;
+            axisCount++;
+        }
+        axisBindings[action] |= 1L << index;
+        compiled = false;
+    }
+
+    /**
+     * Removes all bindings of the action.
+     *
+     * @param action Action ID
+     */
+    public void unbind(int action) {
+        checkAction(action);
+        keyBindings.get(action).clear();
+        mouseBindings[action] = 0;
+        padBindings[action] = 0;
+        axisBindings[action] = 0;
+        compiled = false;
+    }
+
+    /**
+     * Compiles the bindings into the lookup structure used by
+     * {@link #update}. This is done automatically on the next update after
+     * the bindings changed, but may be called explicitly to keep the work
+     * out of the frame.
+     */
+    public void compile() {
+        int count = names.size();
+        int words = 0;
+        for (FixedBitSet keys : keyBindings)
+            for (int w = 0; w < keys.getWordCount(); w++)
+                if (keys.getWord(w) != 0)
+                    words++;
+
+        int[] start = new int[count + 1];
+        int[] wordIndex = new int[words];
+        long[] wordMask = new long[words];
+        boolean[] hasBindings = new boolean[count];
+        int pos = 0;
+        for (int a = 0; a < count; a++) {
+            start[a] = pos;
+            FixedBitSet keys = keyBindings.get(a);
+            for (int w = 0; w < keys.getWordCount(); w++) {
+                long mask = keys.getWord(w);
+                if (mask != 0) {
+                    wordIndex[pos] = w;
+                    wordMask[pos] = mask;
+                    pos++;
+                }
+            }
+            hasBindings[a] = pos > start[a] || mouseBindings[a] != 0
+                    || padBindings[a] != 0 || axisBindings[a] != 0;
+        }
+        start[count] = pos;
+
+        keyStart = start;
+        keyWords = wordIndex;
+        keyMasks = wordMask;
+        bound = hasBindings;
+        if (held.getWordCount() << 6 < count) {
+            FixedBitSet newHeld = new FixedBitSet(count);
+            newHeld.set(held);
+            held = newHeld;
+            lastHeld = new FixedBitSet(count);
+            pressed = new FixedBitSet(count);
+            released = new FixedBitSet(count);
+        }
+        compiled = true;
+    }
+
+    /**
+     * Evaluates all actions for the current frame. Devices may be
+     * {@code null}, their bindings are treated as not held in that case.
+     *
+     * @param keyboard Keyboard or {@code null}
+     * @param mouse Mouse or {@code null}
+     * @param pad Gamepad or {@code null}
+     */
+    public void update(Keyboard keyboard, Mouse mouse, GamePad pad) {
+        if (!compiled)
+            compile();
+
+        FixedBitSet keys = keyboard != null ? keyboard.getKeyBits() : null;
+        FixedBitSet keysDown = keyboard != null ? keyboard.getKeyDownBits() : null;
+        int mouseButtons = mouse != null ? mouse.getButtons() : 0;
+        int mouseDown = mouse != null ? mouse.getButtonsDown() : 0;
+        int padButtons = pad != null ? pad.getButtons() : 0;
+        int padDown = pad != null ? pad.getButtonsDown() : 0;
+
+        lastAxisState = axisState;
+        long axes = 0;
+        if (pad != null) {
+            for (int i = 0; i < axisCount; i++) {
+                float value = pad.getAxeValue(axisIds[i]);
+                float threshold = axisThresholds[i];
+                if (threshold > 0 ? value >= threshold : value <= threshold)
+                    axes |= 1L << i;
+            }
+        }
+        axisState = axes;
+        long axesDown = axes & ~lastAxisState;
+
+        lastHeld.set(held);
+        pressed.clear();
+        released.clear();
+        int count = names.size();
+        for (int a = 0; a < count; a++) {
+            if (!bound[a]) {
+                // Lost its bindings, e.g. by unbind or a reload, while held
+                released.set(a, lastHeld.get(a));
+                held.clear(a);
+                continue;
+            }
+            boolean anyHeld = false;
+            boolean allHeld = true;
+            boolean anyDown = false;
+            if (keys != null) {
+                for (int j = keyStart[a], end = keyStart[a + 1]; j < end; j++) {
+                    int w = keyWords[j];
+                    long mask = keyMasks[j];
+                    long h = keys.getWord(w) & mask;
+                    anyHeld |= h != 0;
+                    allHeld &= h == mask;
+                    anyDown |= (keysDown.getWord(w) & mask) != 0;
+                }
+            } else if (keyStart[a + 1] > keyStart[a]) {
+                allHeld = false;
+            }
+            int mouseMask = mouseBindings[a];
+            int padMask = padBindings[a];
+            long axisMask = axisBindings[a];
+            anyHeld |= (mouseButtons & mouseMask) != 0 || (padButtons & padMask) != 0 || (axes & axisMask) != 0;
+            allHeld &= (mouseButtons & mouseMask) == mouseMask && (padButtons & padMask) == padMask && (axes & axisMask) == axisMask;
+            anyDown |= (mouseDown & mouseMask) != 0 || (padDown & padMask) != 0 || (axesDown & axisMask) != 0;
+
+            boolean wasHeld = lastHeld.get(a);
+            boolean isHeld;
+            if (modes[a] == ALL) {
+                isHeld = allHeld;
+                pressed.set(a, isHeld && !wasHeld);
+                released.set(a, wasHeld && !isHeld);
+            } else {
+                // A bound input that went down and up again within the frame
+                // still triggers the action
+                isHeld = anyHeld;
+                pressed.set(a, !wasHeld && (isHeld || anyDown));
+                released.set(a, !isHeld && (wasHeld || anyDown));
+            }
+            held.set(a, isHeld);
+        }
+    }
+
+    /**
+     * Checks wether the action is currently held.
+     *
+     * @param action Action ID
+     * @return True if the action is held, false otherwise.
+     */
+    public boolean isHeld(int action) {
+        return held.get(action);
+    }
+
+    /**
+     * Checks wether the action was pressed this frame.
+     *
+     * @param action Action ID
+     * @return True if the action was pressed, false otherwise.
+     */
+    public boolean isPressed(int action) {
+        return pressed.get(action);
+    }
+
+    /**
+     * Checks wether the action was released this frame.
+     *
+     * @param action Action ID
+     * @return True if the action was released, false otherwise.
+     */
+    public boolean isReleased(int action) {
+        return released.get(action);
+    }
+
+    /**
+     * Calls the visitor with the ID of each action that was pressed this
+     * frame.
+     *
+     * @param visitor Action ID visitor
+     */
+    public void getPressed(IntConsumer visitor) {
+        pressed.forEachSetBit(visitor);
+    }
+
+    /**
+     * Calls the visitor with the ID of each action that was released this
+     * frame.
+     *
+     * @param visitor Action ID visitor
+     */
+    public void getReleased(IntConsumer visitor) {
+        released.forEachSetBit(visitor);
+    }
+
+    /**
+     * Take over the held state of a map this map replaces, so an action held
+     * while the maps are swapped is not pressed again. Actions without
+     * bindings in this map are released by the next update. Both maps must
+     * use the same action IDs.
+     */
+    void copyHeld(ActionMap previous) {
+        if (!compiled)
+            compile();
+        int count = Math.min(names.size(), Math.min(previous.size(), previous.held.getWordCount() << 6));
+        for (int a = 0; a < count; a++)
+            held.set(a, previous.held.get(a));
+    }
+
+    FixedBitSet getHeldBits() {
+        return held;
+    }
+
+    FixedBitSet getPressedBits() {
+        return pressed;
+    }
+
+    FixedBitSet getReleasedBits() {
+        return released;
+    }
+
+    private void checkAction(int action) {
+        if (action < 0 || action >= names.size())
+            throw new IllegalArgumentException("Invalid action: " + action);
+    }
+
+    private static int checkButton(int button) {
+        if (button < 0 || button >= 32)
+            throw new IllegalArgumentException("Invalid button: " + button);
+        return button;
+    }
+}
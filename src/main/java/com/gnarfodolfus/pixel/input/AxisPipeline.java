@@ -0,0 +1,287 @@
+package com.gnarfodolfus.pixel.input;
+
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Processes the raw axis values of a gamepad once per frame: dead zones,
+ * response curve, smoothing, per frame delta and velocity and axis buttons.
+ * The defaults leave the values untouched, so the processed values equal the
+ * raw values until the pipeline is configured.
+ *
+ * <p>
+ * Sticks are processed as pairs, either with a radial dead zone on the stick
+ * vector or with an axial dead zone on each axis. Triggers rest at -1 like
+ * GLFW reports them, their dead zones are measured from the rest position.
+ *
+ * <p>
+ * Each axis has two axis buttons: the positive one is pressed when the value
+ * reaches the press threshold, the negative one when it reaches the negative
+ * press threshold. They are released when the value falls below the release
+ * threshold again. Triggers only have a positive button, its thresholds
+ * apply to the trigger pulled from 0 to 1.
+ */
+public final class AxisPipeline {
+
+    private static final int AXES = GamePad.AXES_COUNT;
+    private static final int STICKS = 2;
+
+    // Configuration
+    private final float[] innerDeadZone = new float[AXES];
+    private final float[] outerDeadZone = new float[AXES];
+    private final float[] exponent = new float[AXES];
+    private final float[] smoothing = new float[AXES];
+    private final float[] pressThreshold = new float[AXES];
+    private final float[] releaseThreshold = new float[AXES];
+    private final boolean[] radial = new boolean[STICKS];
+
+    // State
+    private final float[] shaped = new float[AXES];
+    private final float[] values = new float[AXES];
+    private final float[] deltas = new float[AXES];
+    private final float[] velocities = new float[AXES];
+    private int buttons;
+    private int buttonsDown;
+    private int buttonsUp;
+
+    AxisPipeline() {
+        for (int i = 0; i < AXES; i++) {
+            outerDeadZone[i] = 1f;
+            exponent[i] = 1f;
+            pressThreshold[i] = 0.5f;
+            releaseThreshold[i] = 0.4f;
+            shaped[i] = rest(i);
+            values[i] = rest(i);
+        }
+    }
+
+    /**
+     * Set a radial dead zone for a stick. Stick vectors shorter than the
+     * inner dead zone become zero, vectors longer than the outer dead zone
+     * have length one and the range in between is rescaled linearly.
+     *
+     * @param axisX X axis of the stick, {@link GLFW#GLFW_GAMEPAD_AXIS_LEFT_X}
+     * or {@link GLFW#GLFW_GAMEPAD_AXIS_RIGHT_X}
+     * @param inner Inner dead zone, 0 to disable
+     * @param outer Outer dead zone, 1 to disable
+     */
+    public void setRadialDeadZone(int axisX, float inner, float outer) {
+        int stick = stick(axisX);
+        checkDeadZone(inner, outer);
+        radial[stick] = true;
+        for (int axis = axisX; axis <= axisX + 1; axis++) {
+            innerDeadZone[axis] = inner;
+            outerDeadZone[axis] = outer;
+        }
+    }
+
+    /**
+     * Set an axial dead zone for a single axis. Stick axes switch back from a
+     * radial to an axial dead zone for both axes of the stick.
+     *
+     * @param axis Axis ID according to GLFW
+     * @param inner Inner dead zone, 0 to disable
+     * @param outer Outer dead zone, 1 to disable
+     */
+    public void setDeadZone(int axis, float inner, float outer) {
+        checkAxis(axis);
+        checkDeadZone(inner, outer);
+        if (axis < STICKS * 2)
+            radial[axis / 2] = false;
+        innerDeadZone[axis] = inner;
+        outerDeadZone[axis] = outer;
+    }
+
+    /**
+     * Set the response curve of an axis. The value after the dead zone is
+     * raised to the power of the exponent, keeping its sign. Exponents greater
+     * than one give more precision around the center. Radial sticks use the
+     * exponent of their X axis for the stick vector.
+     *
+     * @param axis Axis ID according to GLFW
+     * @param exponent Exponent, 1 for a linear response
+     */
+    public void setResponseCurve(int axis, float exponent) {
+        checkAxis(axis);
+        if (!(exponent > 0f))
+            throw new IllegalArgumentException("exponent <= 0");
+        this.exponent[axis] = exponent;
+    }
+
+    /**
+     * Set the low-pass smoothing of an axis. The processed value follows the
+     * input with the given time constant, independent of the frame rate.
+     *
+     * @param axis Axis ID according to GLFW
+     * @param seconds Time constant in seconds, 0 to disable
+     */
+    public void setSmoothing(int axis, float seconds) {
+        checkAxis(axis);
+        if (seconds < 0f)
+            throw new IllegalArgumentException("seconds < 0");
+        smoothing[axis] = seconds;
+    }
+
+    /**
+     * Set the thresholds of the axis buttons. The release threshold is lower
+     * than the press threshold, so the button does not flicker when the value
+     * stays around the threshold.
+     *
+     * @param axis Axis ID according to GLFW
+     * @param press Threshold pressing the button
+     * @param release Threshold releasing the button
+     */
+    public void setButtonThreshold(int axis, float press, float release) {
+        checkAxis(axis);
+        if (!(press > 0f && press <= 1f))
+            throw new IllegalArgumentException("press must be in (0, 1]");
+        if (release < 0f || release > press)
+            throw new IllegalArgumentException("release must be in [0, press]");
+        pressThreshold[axis] = press;
+        releaseThreshold[axis] = release;
+    }
+
+    /**
+     * Process the raw values of a frame.
+     *
+     * @param raw Raw axis values
+     * @param elapsed Seconds since the last frame
+     */
+    void process(float[] raw, float elapsed) {
+        float[] target = shaped;
+        for (int stick = 0; stick < STICKS; stick++) {
+            int x = stick * 2;
+            if (radial[stick]) {
+                radial(raw, target, x);
+            } else {
+                target[x] = axial(raw[x], x);
+                target[x + 1] = axial(raw[x + 1], x + 1);
+            }
+        }
+        for (int axis = STICKS * 2; axis < AXES; axis++) // triggers, -1 to 1
+            target[axis] = axial((raw[axis] + 1f) * 0.5f, axis) * 2f - 1f;
+
+        int lastButtons = buttons;
+        for (int axis = 0; axis < AXES; axis++) {
+            float last = values[axis];
+            float value = target[axis];
+            float tau = smoothing[axis];
+            if (tau > 0f && elapsed > 0f)
+                value = last + (value - last) * (1f - (float) Math.exp(-elapsed / tau));
+            values[axis] = value;
+            deltas[axis] = value - last;
+            velocities[axis] = elapsed > 0f ? deltas[axis] / elapsed : 0f;
+            if (axis < STICKS * 2) {
+                buttons = button(buttons, axis * 2, value, axis);
+                buttons = button(buttons, axis * 2 + 1, -value, axis);
+            } else {
+                buttons = button(buttons, axis * 2, (value + 1f) * 0.5f, axis);
+            }
+        }
+        buttonsDown = buttons & ~lastButtons;
+        buttonsUp = lastButtons & ~buttons;
+    }
+
+    /**
+     * Reset the processed state, e.g. when the gamepad disconnects.
+     */
+    void reset() {
+        for (int i = 0; i < AXES; i++) {
+            values[i] = rest(i);
+            deltas[i] = 0f;
+            velocities[i] = 0f;
+        }
+        buttonsUp = buttons;
+        buttonsDown = 0;
+        buttons = 0;
+    }
+
+    /**
+     * Returns the value of an axis at rest, -1 for triggers and 0 for sticks.
+     */
+    static float rest(int axis) {
+        return axis < STICKS * 2 ? 0f : -1f;
+    }
+
+    private void radial(float[] raw, float[] target, int x) {
+        float vx = raw[x];
+        float vy = raw[x + 1];
+        float length = (float) Math.sqrt(vx * vx + vy * vy);
+        float scaled = shape(length, x);
+        if (scaled == 0f) {
+            target[x] = 0f;
+            target[x + 1] = 0f;
+        } else {
+            float scale = scaled / length;
+            target[x] = vx * scale;
+            target[x + 1] = vy * scale;
+        }
+    }
+
+    private float axial(float value, int axis) {
+        float shaped = shape(Math.abs(value), axis);
+        return value < 0f ? -shaped : shaped;
+    }
+
+    /**
+     * Apply dead zones and response curve to a magnitude.
+     */
+    private float shape(float magnitude, int axis) {
+        float inner = innerDeadZone[axis];
+        float outer = outerDeadZone[axis];
+        if (magnitude <= inner)
+            return 0f;
+        if (magnitude >= outer)
+            return 1f;
+        float value = (magnitude - inner) / (outer - inner);
+        float exp = exponent[axis];
+        return exp == 1f ? value : (float) Math.pow(value, exp);
+    }
+
+    private int button(int bits, int bit, float value, int axis) {
+        int mask = 1 << bit;
+        boolean pressed = (bits & mask) != 0
+                ? value >= releaseThreshold[axis]
+                : value >= pressThreshold[axis];
+        return pressed ? bits | mask : bits & ~mask;
+    }
+
+    float getValue(int axis) {
+        return values[axis];
+    }
+
+    float getDelta(int axis) {
+        return deltas[axis];
+    }
+
+    float getVelocity(int axis) {
+        return velocities[axis];
+    }
+
+    int getButtons() {
+        return buttons;
+    }
+
+    int getButtonsDown() {
+        return buttonsDown;
+    }
+
+    int getButtonsUp() {
+        return buttonsUp;
+    }
+
+    private static int stick(int axisX) {
+        if (axisX != GLFW.GLFW_GAMEPAD_AXIS_LEFT_X && axisX != GLFW.GLFW_GAMEPAD_AXIS_RIGHT_X)
+            throw new IllegalArgumentException("Not the X axis of a stick: " + axisX);
+        return axisX / 2;
+    }
+
+    private static void checkAxis(int axis) {
+        if (axis < 0 || axis >= AXES)
+            throw new IllegalArgumentException("Invalid axis: " + axis);
+    }
+
+    private static void checkDeadZone(float inner, float outer) {
+        if (!(inner >= 0f && inner < outer && outer <= 1f))
+            throw new IllegalArgumentException("Dead zones must satisfy 0 <= inner < outer <= 1");
+    }
+}
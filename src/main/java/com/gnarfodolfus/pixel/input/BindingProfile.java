@@ -0,0 +1,312 @@
+package com.gnarfodolfus.pixel.input;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlRootElement;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Binding profile as read from a JSON or XML file: actions with their key,
+ * mouse button and gamepad bindings, gamepad dead zones and key repeat
+ * settings. Keys, buttons and axes are given by their GLFW names without
+ * prefix, e.g. "SPACE", "LEFT" or "LEFT_X", or by their GLFW IDs:
+ *
+ * <pre>
+ * {
+ *   "actions": [
+ *     { "name": "jump", "keys": ["SPACE"], "gamePadButtons": ["A"] },
+ *     { "name": "left", "keys": ["A", "LEFT"],
+ *       "gamePadAxes": [{ "axis": "LEFT_X", "threshold": -0.5 }] },
+ *     { "name": "save", "mode": "all", "keys": ["LEFT_CONTROL", "S"] }
+ *   ],
+ *   "deadZones": [{ "axis": "LEFT_X", "inner": 0.15, "radial": true }],
+ *   "keyRepeat": { "delay": 0.4, "rate": 25,
+ *     "keys": [{ "key": "BACKSPACE", "rate": 40 }] }
+ * }
+ * </pre>
+ *
+ * The XML form uses the same names, each list entry is an element named
+ * after the list in singular:
+ *
+ * <pre>
+ * &lt;profile&gt;
+ *   &lt;actions&gt;
+ *     &lt;action name="jump"&gt;
+ *       &lt;keys&gt;&lt;key&gt;SPACE&lt;/key&gt;&lt;/keys&gt;
+ *       &lt;gamePadButtons&gt;&lt;gamePadButton&gt;A&lt;/gamePadButton&gt;&lt;/gamePadButtons&gt;
+ *     &lt;/action&gt;
+ *   &lt;/actions&gt;
+ *   &lt;deadZones&gt;
+ *     &lt;deadZone axis="LEFT_X" inner="0.15" radial="true"/&gt;
+ *   &lt;/deadZones&gt;
+ * &lt;/profile&gt;
+ * </pre>
+ *
+ * A profile is only the data, see {@link BindingProfiles} for loading it into
+ * an {@link ActionMap} and the devices.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JacksonXmlRootElement(localName = "profile")
+public final class BindingProfile {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final XmlMapper XML = new XmlMapper();
+    private static final Map<String, Integer> NAMES = names();
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static final class Action {
+
+        public String name;
+
+        /**
+         * Either "any" (default) or "all", see {@link ActionMap#ANY} and
+         * {@link ActionMap#ALL}.
+         */
+        public String mode;
+
+        @JacksonXmlElementWrapper(localName = "keys")
+        @JacksonXmlProperty(localName = "key")
+        public List<String> keys = new ArrayList<>();
+
+        @JacksonXmlElementWrapper(localName = "mouseButtons")
+        @JacksonXmlProperty(localName = "mouseButton")
+        public List<String> mouseButtons = new ArrayList<>();
+
+        @JacksonXmlElementWrapper(localName = "gamePadButtons")
+        @JacksonXmlProperty(localName = "gamePadButton")
+        public List<String> gamePadButtons = new ArrayList<>();
+
+        @JacksonXmlElementWrapper(localName = "gamePadAxes")
+        @JacksonXmlProperty(localName = "gamePadAxis")
+        public List<AxisBinding> gamePadAxes = new ArrayList<>();
+    }
+
+    /**
+     * Gamepad axis threshold, see
+     * {@link ActionMap#bindGamePadAxis(int, int, float)}.
+     */
+    public static final class AxisBinding {
+
+        public String axis;
+        public float threshold;
+    }
+
+    /**
+     * Dead zone of a gamepad axis, see {@link AxisPipeline}. A radial dead
+     * zone applies to both axes of the stick and is given for its X axis.
+     */
+    public static final class DeadZone {
+
+        public String axis;
+        public float inner;
+        public float outer = 1f;
+        public boolean radial;
+    }
+
+    /**
+     * Key repeat delay and rate of all keys, optionally overridden per key.
+     * See {@link Keyboard#setKeyRepeat(float, float)}.
+     */
+    public static final class KeyRepeat {
+
+        public float delay = Keyboard.DEFAULT_REPEAT_DELAY;
+        public float rate = Keyboard.DEFAULT_REPEAT_RATE;
+
+        @JacksonXmlElementWrapper(localName = "keys")
+        @JacksonXmlProperty(localName = "key")
+        public List<KeyRepeatOverride> keys = new ArrayList<>();
+    }
+
+    /**
+     * Repeat settings of a single key. Unset values are taken from the
+     * enclosing {@link KeyRepeat}.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static final class KeyRepeatOverride {
+
+        public String key;
+        public Float delay;
+        public Float rate;
+    }
+
+    @JacksonXmlElementWrapper(localName = "actions")
+    @JacksonXmlProperty(localName = "action")
+    public List<Action> actions = new ArrayList<>();
+
+    @JacksonXmlElementWrapper(localName = "deadZones")
+    @JacksonXmlProperty(localName = "deadZone")
+    public List<DeadZone> deadZones = new ArrayList<>();
+
+    /**
+     * Key repeat settings or {@code null} for the defaults of the keyboard.
+     */
+    public KeyRepeat keyRepeat;
+
+    /**
+     * Read a profile from a file. Files ending with ".xml" are read as XML,
+     * all others as JSON.
+     *
+     * @param file Profile file
+     * @return The profile
+     * @throws IOException If the file cannot be read or parsed
+     */
+    public static BindingProfile read(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        ObjectMapper mapper = name.endsWith(".xml") ? XML : JSON;
+        return mapper.readValue(file.toFile(), BindingProfile.class);
+    }
+
+    /**
+     * Write the profile to a file, as XML if the file name ends with ".xml"
+     * and as JSON otherwise.
+     *
+     * @param file Profile file
+     * @throws IOException If the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        ObjectMapper mapper = name.endsWith(".xml") ? XML : JSON;
+        mapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), this);
+    }
+
+    static int getKey(String name) {
+        return resolve("KEY_", "key", name);
+    }
+
+    static int getMouseButton(String name) {
+        return resolve("MOUSE_BUTTON_", "mouse button", name);
+    }
+
+    static int getGamePadButton(String name) {
+        return resolve("GAMEPAD_BUTTON_", "gamepad button", name);
+    }
+
+    static int getGamePadAxis(String name) {
+        return resolve("GAMEPAD_AXIS_", "gamepad axis", name);
+    }
+
+    /**
+     * Resolve a GLFW constant by name, e.g. "SPACE", "KEY_SPACE" or
+     * "GLFW_KEY_SPACE" for {@link GLFW#GLFW_KEY_SPACE}, or parse its ID.
+     */
+    private static int resolve(String prefix, String label, String name) {
+        if (name == null || name.isBlank())
+            throw new IllegalArgumentException("Missing " + label);
+        String field = name.trim().toUpperCase(Locale.ROOT).replace(' ', '_');
+        if (field.startsWith("GLFW_"))
+            field = field.substring(5);
+        if (field.startsWith(prefix))
+            field = field.substring(prefix.length());
+        Integer id = NAMES.get(prefix + field);
+        if (id != null)
+            return id;
+        try {
+            return Integer.parseInt(field);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Unknown " + label + ": " + name);
+        }
+    }
+
+    /**
+     * Names of the GLFW constants without the "GLFW_" prefix. The constants
+     * are inlined, reading them by reflection would load the native GLFW
+     * library, which is not available with a {@link SyntheticInputBackend}.
+     */
+    private static Map<String, Integer> names() {
+        Map<String, Integer> n = new HashMap<>();
+        for (int c = 'A'; c <= 'Z'; c++)
+            n.put("KEY_" + (char) c, GLFW.GLFW_KEY_A + c - 'A');
+        for (int i = 0; i <= 9; i++) {
+            n.put("KEY_" + i, GLFW.GLFW_KEY_0 + i);
+            n.put("KEY_KP_" + i, GLFW.GLFW_KEY_KP_0 + i);
+        }
+        for (int i = 0; i <= GLFW.GLFW_KEY_F25 - GLFW.GLFW_KEY_F1; i++)
+            n.put("KEY_F" + (i + 1), GLFW.GLFW_KEY_F1 + i);
+        for (int i = 0; i <= GLFW.GLFW_MOUSE_BUTTON_LAST; i++)
+            n.put("MOUSE_BUTTON_" + (i + 1), GLFW.GLFW_MOUSE_BUTTON_1 + i);
+        n.put("KEY_SPACE", GLFW.GLFW_KEY_SPACE);
+        n.put("KEY_APOSTROPHE", GLFW.GLFW_KEY_APOSTROPHE);
+        n.put("KEY_COMMA", GLFW.GLFW_KEY_COMMA);
+        n.put("KEY_MINUS", GLFW.GLFW_KEY_MINUS);
+        n.put("KEY_PERIOD", GLFW.GLFW_KEY_PERIOD);
+        n.put("KEY_SLASH", GLFW.GLFW_KEY_SLASH);
+        n.put("KEY_SEMICOLON", GLFW.GLFW_KEY_SEMICOLON);
+        n.put("KEY_EQUAL", GLFW.GLFW_KEY_EQUAL);
+        n.put("KEY_LEFT_BRACKET", GLFW.GLFW_KEY_LEFT_BRACKET);
+        n.put("KEY_BACKSLASH", GLFW.GLFW_KEY_BACKSLASH);
+        n.put("KEY_RIGHT_BRACKET", GLFW.GLFW_KEY_RIGHT_BRACKET);
+        n.put("KEY_GRAVE_ACCENT", GLFW.GLFW_KEY_GRAVE_ACCENT);
+        n.put("KEY_WORLD_1", GLFW.GLFW_KEY_WORLD_1);
+        n.put("KEY_WORLD_2", GLFW.GLFW_KEY_WORLD_2);
+        n.put("KEY_ESCAPE", GLFW.GLFW_KEY_ESCAPE);
+        n.put("KEY_ENTER", GLFW.GLFW_KEY_ENTER);
+        n.put("KEY_TAB", GLFW.GLFW_KEY_TAB);
+        n.put("KEY_BACKSPACE", GLFW.GLFW_KEY_BACKSPACE);
+        n.put("KEY_INSERT", GLFW.GLFW_KEY_INSERT);
+        n.put("KEY_DELETE", GLFW.GLFW_KEY_DELETE);
+        n.put("KEY_RIGHT", GLFW.GLFW_KEY_RIGHT);
+        n.put("KEY_LEFT", GLFW.GLFW_KEY_LEFT);
+        n.put("KEY_DOWN", GLFW.GLFW_KEY_DOWN);
+        n.put("KEY_UP", GLFW.GLFW_KEY_UP);
+        n.put("KEY_PAGE_UP", GLFW.GLFW_KEY_PAGE_UP);
+        n.put("KEY_PAGE_DOWN", GLFW.GLFW_KEY_PAGE_DOWN);
+        n.put("KEY_HOME", GLFW.GLFW_KEY_HOME);
+        n.put("KEY_END", GLFW.GLFW_KEY_END);
+        n.put("KEY_CAPS_LOCK", GLFW.GLFW_KEY_CAPS_LOCK);
+        n.put("KEY_SCROLL_LOCK", GLFW.GLFW_KEY_SCROLL_LOCK);
+        n.put("KEY_NUM_LOCK", GLFW.GLFW_KEY_NUM_LOCK);
+        n.put("KEY_PRINT_SCREEN", GLFW.GLFW_KEY_PRINT_SCREEN);
+        n.put("KEY_PAUSE", GLFW.GLFW_KEY_PAUSE);
+        n.put("KEY_KP_DECIMAL", GLFW.GLFW_KEY_KP_DECIMAL);
+        n.put("KEY_KP_DIVIDE", GLFW.GLFW_KEY_KP_DIVIDE);
+        n.put("KEY_KP_MULTIPLY", GLFW.GLFW_KEY_KP_MULTIPLY);
+        n.put("KEY_KP_SUBTRACT", GLFW.GLFW_KEY_KP_SUBTRACT);
+        n.put("KEY_KP_ADD", GLFW.GLFW_KEY_KP_ADD);
+        n.put("KEY_KP_ENTER", GLFW.GLFW_KEY_KP_ENTER);
+        n.put("KEY_KP_EQUAL", GLFW.GLFW_KEY_KP_EQUAL);
+        n.put("KEY_LEFT_SHIFT", GLFW.GLFW_KEY_LEFT_SHIFT);
+        n.put("KEY_LEFT_CONTROL", GLFW.GLFW_KEY_LEFT_CONTROL);
+        n.put("KEY_LEFT_ALT", GLFW.GLFW_KEY_LEFT_ALT);
+        n.put("KEY_LEFT_SUPER", GLFW.GLFW_KEY_LEFT_SUPER);
+        n.put("KEY_RIGHT_SHIFT", GLFW.GLFW_KEY_RIGHT_SHIFT);
+        n.put("KEY_RIGHT_CONTROL", GLFW.GLFW_KEY_RIGHT_CONTROL);
+        n.put("KEY_RIGHT_ALT", GLFW.GLFW_KEY_RIGHT_ALT);
+        n.put("KEY_RIGHT_SUPER", GLFW.GLFW_KEY_RIGHT_SUPER);
+        n.put("KEY_MENU", GLFW.GLFW_KEY_MENU);
+        n.put("MOUSE_BUTTON_LEFT", GLFW.GLFW_MOUSE_BUTTON_LEFT);
+        n.put("MOUSE_BUTTON_RIGHT", GLFW.GLFW_MOUSE_BUTTON_RIGHT);
+        n.put("MOUSE_BUTTON_MIDDLE", GLFW.GLFW_MOUSE_BUTTON_MIDDLE);
+        n.put("GAMEPAD_BUTTON_A", GLFW.GLFW_GAMEPAD_BUTTON_A);
+        n.put("GAMEPAD_BUTTON_B", GLFW.GLFW_GAMEPAD_BUTTON_B);
+        n.put("GAMEPAD_BUTTON_X", GLFW.GLFW_GAMEPAD_BUTTON_X);
+        n.put("GAMEPAD_BUTTON_Y", GLFW.GLFW_GAMEPAD_BUTTON_Y);
+        n.put("GAMEPAD_BUTTON_LEFT_BUMPER", GLFW.GLFW_GAMEPAD_BUTTON_LEFT_BUMPER);
+        n.put("GAMEPAD_BUTTON_RIGHT_BUMPER", GLFW.GLFW_GAMEPAD_BUTTON_RIGHT_BUMPER);
+        n.put("GAMEPAD_BUTTON_BACK", GLFW.GLFW_GAMEPAD_BUTTON_BACK);
+        n.put("GAMEPAD_BUTTON_START", GLFW.GLFW_GAMEPAD_BUTTON_START);
+        n.put("GAMEPAD_BUTTON_GUIDE", GLFW.GLFW_GAMEPAD_BUTTON_GUIDE);
+        n.put("GAMEPAD_BUTTON_LEFT_THUMB", GLFW.GLFW_GAMEPAD_BUTTON_LEFT_THUMB);
+        n.put("GAMEPAD_BUTTON_RIGHT_THUMB", GLFW.GLFW_GAMEPAD_BUTTON_RIGHT_THUMB);
+        n.put("GAMEPAD_BUTTON_DPAD_UP", GLFW.GLFW_GAMEPAD_BUTTON_DPAD_UP);
+        n.put("GAMEPAD_BUTTON_DPAD_RIGHT", GLFW.GLFW_GAMEPAD_BUTTON_DPAD_RIGHT);
+        n.put("GAMEPAD_BUTTON_DPAD_DOWN", GLFW.GLFW_GAMEPAD_BUTTON_DPAD_DOWN);
+        n.put("GAMEPAD_BUTTON_DPAD_LEFT", GLFW.GLFW_GAMEPAD_BUTTON_DPAD_LEFT);
+        n.put("GAMEPAD_BUTTON_CROSS", GLFW.GLFW_GAMEPAD_BUTTON_CROSS);
+        n.put("GAMEPAD_BUTTON_CIRCLE", GLFW.GLFW_GAMEPAD_BUTTON_CIRCLE);
+        n.put("GAMEPAD_BUTTON_SQUARE", GLFW.GLFW_GAMEPAD_BUTTON_SQUARE);
+        n.put("GAMEPAD_BUTTON_TRIANGLE", GLFW.GLFW_GAMEPAD_BUTTON_TRIANGLE);
+        n.put("GAMEPAD_AXIS_LEFT_X", GLFW.GLFW_GAMEPAD_AXIS_LEFT_X);
+        n.put("GAMEPAD_AXIS_LEFT_Y", GLFW.GLFW_GAMEPAD_AXIS_LEFT_Y);
+        n.put("GAMEPAD_AXIS_RIGHT_X", GLFW.GLFW_GAMEPAD_AXIS_RIGHT_X);
+        n.put("GAMEPAD_AXIS_RIGHT_Y", GLFW.GLFW_GAMEPAD_AXIS_RIGHT_Y);
+        n.put("GAMEPAD_AXIS_LEFT_TRIGGER", GLFW.GLFW_GAMEPAD_AXIS_LEFT_TRIGGER);
+        n.put("GAMEPAD_AXIS_RIGHT_TRIGGER", GLFW.GLFW_GAMEPAD_AXIS_RIGHT_TRIGGER);
+        return n;
+    }
+}
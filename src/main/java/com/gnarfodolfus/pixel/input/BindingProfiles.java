@@ -0,0 +1,222 @@
+package com.gnarfodolfus.pixel.input;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Loads a {@link BindingProfile} from a file into an {@link ActionMap}, the
+ * keyboard repeat settings and the dead zones of the gamepads, and reloads it
+ * whenever the file changes:
+ *
+ * <pre>
+ * BindingProfiles profiles = new BindingProfiles(Path.of("bindings.json"));
+ * profiles.load();
+ * profiles.watch();
+ * int jump = profiles.getActionMap().getId("jump");
+ * ...
+ * Input.update(dt);
+ * profiles.update();
+ * ActionMap actions = profiles.getActionMap();
+ * actions.update(Input.getKeyboard(), Input.getMouse(), Input.getGamePad());
+ * if (actions.isPressed(jump)) ...
+ * </pre>
+ *
+ * Profiles are read and compiled on the watcher thread and handed over
+ * through a single reference. {@link #update()} swaps the new profile in
+ * between frames, so the game thread never waits for a reload and a frame
+ * never sees half a profile. Action IDs stay valid across reloads and
+ * actions held during a reload are not pressed again. A profile that fails
+ * to load is reported by {@link #getLastError()} and the previous profile
+ * stays active.
+ *
+ * <p>
+ * The watcher relies on {@link WatchService}, which is polled on some
+ * platforms and may take a few seconds to notice a change there.
+ */
+public final class BindingProfiles implements Closeable {
+
+    // Editors save in several steps, wait until the file settles
+    private static final long DEBOUNCE_MILLIS = 50L;
+
+    private final Path file;
+    private final AtomicReference<CompiledProfile> pending = new AtomicReference<>();
+
+    // Game thread state
+    private final GamePad[] appliedPads = new GamePad[GamePads.PADS];
+    private CompiledProfile current;
+    private ActionMap actions = new ActionMap();
+
+    // Latest compiled profile, the base of the next one
+    private CompiledProfile latest;
+    private volatile Exception lastError;
+
+    private WatchService watcher;
+    private Thread thread;
+
+    public BindingProfiles(Path file) {
+        this.file = file.toAbsolutePath();
+    }
+
+    /**
+     * Read and compile the profile file. The profile becomes active with the
+     * next {@link #update()}.
+     *
+     * @throws IOException If the file cannot be read or parsed
+     * @throws IllegalArgumentException If the profile is invalid
+     */
+    public void load() throws IOException {
+        load(BindingProfile.read(file));
+    }
+
+    /**
+     * Compile the given profile, e.g. built-in defaults. The profile becomes
+     * active with the next {@link #update()}.
+     *
+     * @param profile Profile
+     * @throws IllegalArgumentException If the profile is invalid
+     */
+    public synchronized void load(BindingProfile profile) {
+        CompiledProfile compiled = new CompiledProfile(profile, latest != null ? latest.actions : null);
+        latest = compiled;
+        pending.set(compiled);
+        lastError = null;
+    }
+
+    /**
+     * Start watching the profile file. Each change of the file reloads the
+     * profile on a background thread.
+     *
+     * @throws IOException If the directory of the file cannot be watched
+     */
+    public synchronized void watch() throws IOException {
+        if (thread != null)
+            return;
+        Path dir = file.getParent();
+        WatchService service = dir.getFileSystem().newWatchService();
+        dir.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watcher = service;
+        thread = new Thread(() -> run(service), "BindingProfiles");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = false;
+                while (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents())
+                        changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                                || file.getFileName().equals(event.context());
+                    key.reset();
+                    key = service.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (changed)
+                    reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            // Closed
+        }
+    }
+
+    private void reload() {
+        try {
+            load();
+        } catch (IOException | RuntimeException ex) {
+            lastError = ex;
+        }
+    }
+
+    /**
+     * Swap in a newly loaded profile and apply it to the keyboard and to
+     * gamepads that connected since. Call once per frame after
+     * {@link Input#update} and before the action map is updated. Does not
+     * allocate and does not wait for a reload in progress.
+     *
+     * @return True if a new profile was swapped in, false otherwise.
+     */
+    public boolean update() {
+        CompiledProfile next = pending.getAndSet(null);
+        if (next != null) {
+            next.actions.copyHeld(actions);
+            actions = next.actions;
+            current = next;
+            current.apply(Input.getKeyboard());
+            Arrays.fill(appliedPads, null);
+        }
+        if (current != null) {
+            for (int jid = 0; jid < appliedPads.length; jid++) {
+                GamePad pad = Input.getGamePad(jid);
+                if (pad != null && pad != appliedPads[jid]) {
+                    current.apply(pad);
+                    appliedPads[jid] = pad;
+                }
+            }
+        }
+        return next != null;
+    }
+
+    /**
+     * Returns the action map of the active profile. The map is replaced when
+     * a reload is swapped in, so fetch it after {@link #update()} instead of
+     * keeping it. Action IDs remain valid.
+     *
+     * @return Action map, empty until the first profile is swapped in
+     */
+    public ActionMap getActionMap() {
+        return actions;
+    }
+
+    /**
+     * Returns the active profile.
+     *
+     * @return Profile or {@code null} until the first profile is swapped in
+     */
+    public BindingProfile getProfile() {
+        return current != null ? current.profile : null;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the error of the last failed reload. Cleared when a profile was
+     * loaded successfully.
+     *
+     * @return Error or {@code null}
+     */
+    public Exception getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Stop watching the profile file. The active profile stays in use.
+     */
+    @Override
+    public void close() throws IOException {
+        Thread watchThread;
+        WatchService watchService;
+        synchronized (this) {
+            watchThread = thread;
+            watchService = watcher;
+            thread = null;
+            watcher = null;
+        }
+        if (watchThread == null)
+            return;
+        // Not holding the lock, the watcher thread may be in load() and needs
+        // it to finish
+        watchService.close();
+        try {
+            watchThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
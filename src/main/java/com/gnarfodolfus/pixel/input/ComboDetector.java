@@ -0,0 +1,425 @@
+package com.gnarfodolfus.pixel.input;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Detects input sequences like fighting game motions or cheat codes. Each
+ * frame the key and mouse button presses and the gamepad button, axis button
+ * and stick direction edges are fed into a single automaton built from all
+ * sequences (Aho-Corasick), so the cost of a frame depends on the number of
+ * edges, not on the number of combos. Matching does not allocate. Call
+ * {@link #update} once per frame after {@link Input#update}:
+ *
+ * <pre>
+ * ComboDetector combos = new ComboDetector();
+ * int fireball = combos.define("fireball", 500,
+ *         ComboDetector.gamePadDirection(2), ComboDetector.gamePadDirection(3),
+ *         ComboDetector.gamePadDirection(6), ComboDetector.gamePadButton(GLFW.GLFW_GAMEPAD_BUTTON_X));
+ * ...
+ * combos.update(Input.getEvents(), Input.getGamePad());
+ * if (combos.isTriggered(fireball)) ...
+ * </pre>
+ *
+ * A combo triggers when its symbols went down in order and the whole sequence
+ * took at most the time window of the combo. Edges that are not part of any
+ * combo are ignored, edges that are part of a combo but do not continue the
+ * sequence restart it. Key and mouse button presses are fed in the order they
+ * were received and with their event times, so two keys typed within one
+ * frame match in that order and a key tapped twice within a frame counts
+ * twice. The gamepad is sampled once per frame, its edges follow at the time
+ * of the update, buttons and axes in ascending order. Events are empty
+ * during a replay, so keys and mouse buttons do not trigger combos then.
+ * Defining combos is not meant to be done while playing, it allocates and
+ * rebuilds the automaton.
+ */
+public final class ComboDetector {
+
+    private static final int TYPE_KEY = 1 << 16;
+    private static final int TYPE_MOUSE_BUTTON = 2 << 16;
+    private static final int TYPE_PAD_BUTTON = 3 << 16;
+    private static final int TYPE_PAD_AXIS = 4 << 16;
+    private static final int TYPE_PAD_DIRECTION = 5 << 16;
+
+    private static final int NEUTRAL = 5;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<int[]> sequences = new ArrayList<>();
+    private long[] windows = new long[16];
+
+    // Compiled automaton. Transitions of a state are sorted by symbol in
+    // edgeSymbols/edgeTargets in the range edgeStart[s]..edgeStart[s + 1],
+    // the combos ending in a state (including its suffixes) in
+    // outCombos in the range outStart[s]..outStart[s + 1]
+    private boolean compiled;
+    private int[] alphabet = new int[0];
+    private int[] edgeStart = new int[2];
+    private int[] edgeSymbols = new int[0];
+    private int[] edgeTargets = new int[0];
+    private int[] fail = new int[1];
+    private int[] outStart = new int[2];
+    private int[] outCombos = new int[0];
+    private int[] lengths = new int[0];
+
+    // Matching state
+    private int state;
+    private long[] times = new long[1]; // ring of the last symbol times
+    private long fed;
+    private int direction = NEUTRAL;
+    private FixedBitSet triggered = new FixedBitSet(1);
+
+    /**
+     * Returns the symbol of a key going down.
+     *
+     * @param key Key ID according to GLFW, e.g. {@link GLFW#GLFW_KEY_A}
+     * @return Symbol
+     */
+    public static int key(int key) {
+        if (key < 0 || key >= Keyboard.KEYBOARD_SIZE)
+            throw new IllegalArgumentException("Invalid key: " + key);
+        return TYPE_KEY | key;
+    }
+
+    /**
+     * Returns the symbol of a mouse button going down.
+     *
+     * @param button Button ID according to GLFW, e.g.
+     * {@link GLFW#GLFW_MOUSE_BUTTON_1}
+     * @return Symbol
+     */
+    public static int mouseButton(int button) {
+        return TYPE_MOUSE_BUTTON | checkButton(button);
+    }
+
+    /**
+     * Returns the symbol of a gamepad button going down.
+     *
+     * @param button Button ID according to GLFW, e.g.
+     * {@link GLFW#GLFW_GAMEPAD_BUTTON_A}
+     * @return Symbol
+     */
+    public static int gamePadButton(int button) {
+        return TYPE_PAD_BUTTON | checkButton(button);
+    }
+
+    /**
+     * Returns the symbol of a gamepad axis button going down, see
+     * {@link GamePad#getAxeButton(int, boolean)}.
+     *
+     * @param axis Axis ID according to GLFW
+     * @param negative Negative direction instead of the positive one
+     * @return Symbol
+     */
+    public static int gamePadAxis(int axis, boolean negative) {
+        if (axis < 0 || axis >= GamePad.AXES_COUNT)
+            throw new IllegalArgumentException("Invalid axis: " + axis);
+        return TYPE_PAD_AXIS | (axis * 2 + (negative ? 1 : 0));
+    }
+
+    /**
+     * Returns the symbol of the gamepad changing to a direction. Directions
+     * use numpad notation: 2 is down, 3 down-right, 6 right and so on, 5 is
+     * neutral and has no symbol. The direction combines the D-pad and the
+     * axis buttons of the left stick.
+     *
+     * @param direction Direction 1 to 9 except 5
+     * @return Symbol
+     */
+    public static int gamePadDirection(int direction) {
+        if (direction < 1 || direction > 9 || direction == NEUTRAL)
+            throw new IllegalArgumentException("Invalid direction: " + direction);
+        return TYPE_PAD_DIRECTION | direction;
+    }
+
+    /**
+     * Defines a combo. If a combo with that name already exists its ID is
+     * returned and its sequence is replaced.
+     *
+     * @param name Combo name
+     * @param windowMillis Maximum time from the first to the last symbol
+     * @param symbols Symbols in order, e.g. {@link #key(int)}
+     * @return Combo ID
+     */
+    public int define(String name, long windowMillis, int... symbols) {
+        if (windowMillis < 0)
+            throw new IllegalArgumentException("windowMillis < 0");
+        if (symbols.length == 0)
+            throw new IllegalArgumentException("Empty sequence");
+        for (int symbol : symbols) {
+            int type = symbol & ~0xffff;
+            if (type < TYPE_KEY || type > TYPE_PAD_DIRECTION)
+                throw new IllegalArgumentException("Invalid symbol: " + symbol);
+        }
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            ids.put(name, id);
+            names.add(name);
+            sequences.add(null);
+            if (id >= windows.length)
+                windows = Arrays.copyOf(windows, windows.length * 2);
+        }
+        sequences.set(id, symbols.clone());
+        windows[id] = windowMillis * 1_000_000L;
+        compiled = false;
+        return id;
+    }
+
+    /**
+     * Returns the ID of the combo with the given name.
+     *
+     * @param name Combo name
+     * @return Combo ID or -1 if there is no such combo
+     */
+    public int getId(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    public String getName(int combo) {
+        return names.get(combo);
+    }
+
+    /**
+     * Returns the number of defined combos. Combo IDs range from zero to
+     * {@code size() - 1}.
+     *
+     * @return Number of combos
+     */
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * Builds the automaton of all combos. This is done automatically on the
+     * next update after the combos changed, but may be called explicitly to
+     * keep the work out of the frame. Partially entered sequences are lost.
+     */
+    public void compile() {
+        int count = names.size();
+
+        // Trie with sorted children, state 0 is the root
+        List<TreeMap<Integer, Integer>> children = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        children.add(new TreeMap<>());
+        ends.add(new ArrayList<>());
+        TreeSet<Integer> symbols = new TreeSet<>();
+        int[] comboLengths = new int[count];
+        int maxLength = 1;
+        for (int c = 0; c < count; c++) {
+            int s = 0;
+            for (int symbol : sequences.get(c)) {
+                symbols.add(symbol);
+                Integer next = children.get(s).get(symbol);
+                if (next == null) {
+                    next = children.size();
+                    children.get(s).put(symbol, next);
+                    children.add(new TreeMap<>());
+                    ends.add(new ArrayList<>());
+                }
+                s = next;
+            }
+            ends.get(s).add(c);
+            comboLengths[c] = sequences.get(c).length;
+            maxLength = Math.max(maxLength, comboLengths[c]);
+        }
+
+        // Failure links in breadth first order, so the link of a state is
+        // known before its children are visited
+        int states = children.size();
+        int[] failLinks = new int[states];
+        int[] order = new int[states];
+        int head = 0;
+        int tail = 0;
+        order[tail++] = 0;
+        while (head < tail) {
+            int s = order[head++];
+            for (Map.Entry<Integer, Integer> e : children.get(s).entrySet()) {
+                int child = e.getValue();
+                if (s != 0) {
+                    int f = failLinks[s];
+                    Integer target;
+                    while ((target = children.get(f).get(e.getKey())) == null && f != 0)
+                        f = failLinks[f];
+                    failLinks[child] = target != null ? target : 0;
+                    // Combos ending in the longest suffix end here as well
+                    ends.get(child).addAll(ends.get(failLinks[child]));
+                }
+                order[tail++] = child;
+            }
+        }
+
+        int edges = states - 1;
+        int outputs = 0;
+        for (List<Integer> e : ends)
+            outputs += e.size();
+        int[] start = new int[states + 1];
+        int[] edgeSymbol = new int[edges];
+        int[] edgeTarget = new int[edges];
+        int[] output = new int[states + 1];
+        int[] outputCombos = new int[outputs];
+        int pos = 0;
+        int out = 0;
+        for (int s = 0; s < states; s++) {
+            start[s] = pos;
+            for (Map.Entry<Integer, Integer> e : children.get(s).entrySet()) {
+                edgeSymbol[pos] = e.getKey();
+                edgeTarget[pos] = e.getValue();
+                pos++;
+            }
+            output[s] = out;
+            for (int c : ends.get(s))
+                outputCombos[out++] = c;
+        }
+        start[states] = pos;
+        output[states] = out;
+
+        alphabet = symbols.stream().mapToInt(Integer::intValue).toArray();
+        edgeStart = start;
+        edgeSymbols = edgeSymbol;
+        edgeTargets = edgeTarget;
+        fail = failLinks;
+        outStart = output;
+        outCombos = outputCombos;
+        lengths = comboLengths;
+        times = new long[Integer.highestOneBit(maxLength * 2 - 1)];
+        state = 0;
+        fed = 0;
+        if (triggered.getWordCount() << 6 < count)
+            triggered = new FixedBitSet(count);
+        compiled = true;
+    }
+
+    /**
+     * Feeds the presses and edges of the current frame into the automaton.
+     *
+     * @param events Key and mouse events of the frame, e.g.
+     * {@link Input#getEvents()}, or {@code null}
+     * @param pad Gamepad or {@code null}
+     */
+    public void update(InputEvents events, GamePad pad) {
+        if (!compiled)
+            compile();
+        triggered.clear();
+
+        if (events != null) {
+            for (int i = 0; i < events.size(); i++) {
+                if (events.getAction(i) != GLFW.GLFW_PRESS)
+                    continue;
+                int code = events.getCode(i);
+                int device = events.getDevice(i);
+                if (device == InputEvents.DEVICE_KEYBOARD && code >= 0)
+                    feed(TYPE_KEY | code, events.getTime(i));
+                else if (device == InputEvents.DEVICE_MOUSE && code >= 0 && code < 32)
+                    feed(TYPE_MOUSE_BUTTON | code, events.getTime(i));
+            }
+        }
+        if (pad != null) {
+            long time = System.nanoTime();
+            feedBits(TYPE_PAD_BUTTON, pad.getButtonsDown(), time);
+            feedBits(TYPE_PAD_AXIS, pad.getAxeButtonsDown(), time);
+            int dir = direction(pad);
+            if (dir != direction) {
+                direction = dir;
+                if (dir != NEUTRAL)
+                    feed(TYPE_PAD_DIRECTION | dir, time);
+            }
+        }
+    }
+
+    /**
+     * Forget partially entered sequences.
+     */
+    public void reset() {
+        state = 0;
+        direction = NEUTRAL;
+    }
+
+    /**
+     * Checks whether the combo was completed this frame.
+     *
+     * @param combo Combo ID
+     * @return True if the combo was triggered, false otherwise.
+     */
+    public boolean isTriggered(int combo) {
+        return triggered.get(combo);
+    }
+
+    /**
+     * Calls the visitor with the ID of each combo that was completed this
+     * frame.
+     *
+     * @param visitor Combo ID visitor
+     */
+    public void getTriggered(IntConsumer visitor) {
+        triggered.forEachSetBit(visitor);
+    }
+
+    private void feedBits(int type, int bits, long time) {
+        while (bits != 0) {
+            int bit = Integer.numberOfTrailingZeros(bits);
+            feed(type | bit, time);
+            bits &= bits - 1;
+        }
+    }
+
+    private void feed(int symbol, long time) {
+        if (Arrays.binarySearch(alphabet, symbol) < 0)
+            return;
+        long index = fed++;
+        int mask = times.length - 1;
+        times[(int) index & mask] = time;
+
+        int s = state;
+        int next;
+        while ((next = transition(s, symbol)) < 0 && s != 0)
+            s = fail[s];
+        state = next < 0 ? 0 : next;
+
+        for (int i = outStart[state], end = outStart[state + 1]; i < end; i++) {
+            int combo = outCombos[i];
+            long first = times[(int) (index - lengths[combo] + 1) & mask];
+            if (time - first <= windows[combo])
+                triggered.set(combo);
+        }
+    }
+
+    private int transition(int s, int symbol) {
+        int low = edgeStart[s];
+        int high = edgeStart[s + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = edgeSymbols[mid];
+            if (value < symbol)
+                low = mid + 1;
+            else if (value > symbol)
+                high = mid - 1;
+            else
+                return edgeTargets[mid];
+        }
+        return -1;
+    }
+
+    private static int direction(GamePad pad) {
+        int x = 0;
+        int y = 0;
+        if (pad.getButton(GLFW.GLFW_GAMEPAD_BUTTON_DPAD_RIGHT) || pad.getAxeButton(GLFW.GLFW_GAMEPAD_AXIS_LEFT_X, false))
+            x++;
+        if (pad.getButton(GLFW.GLFW_GAMEPAD_BUTTON_DPAD_LEFT) || pad.getAxeButton(GLFW.GLFW_GAMEPAD_AXIS_LEFT_X, true))
+            x--;
+        // Positive Y is down according to GLFW
+        if (pad.getButton(GLFW.GLFW_GAMEPAD_BUTTON_DPAD_DOWN) || pad.getAxeButton(GLFW.GLFW_GAMEPAD_AXIS_LEFT_Y, false))
+            y--;
+        if (pad.getButton(GLFW.GLFW_GAMEPAD_BUTTON_DPAD_UP) || pad.getAxeButton(GLFW.GLFW_GAMEPAD_AXIS_LEFT_Y, true))
+            y++;
+        return NEUTRAL + x + 3 * y;
+    }
+
+    private static int checkButton(int button) {
+        if (button < 0 || button >= 32)
+            throw new IllegalArgumentException("Invalid button: " + button);
+        return button;
+    }
+}
@@ -0,0 +1,138 @@
+package com.gnarfodolfus.pixel.input;
+
+import java.util.Arrays;
+
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * A {@link BindingProfile} resolved into the structures used per frame: a
+ * compiled {@link ActionMap} and flat arrays of the dead zones and repeat
+ * settings. Compiling resolves all names and validates all values, so
+ * applying a compiled profile cannot fail. Immutable once compiled, except
+ * for the held state of the action map which starts to change after the
+ * profile was swapped in.
+ */
+final class CompiledProfile {
+
+    private static final int AXES = GamePad.AXES_COUNT;
+
+    final BindingProfile profile;
+    final ActionMap actions = new ActionMap();
+
+    final float[] innerDeadZone = new float[AXES];
+    final float[] outerDeadZone = new float[AXES];
+    final boolean[] radial = new boolean[2];
+
+    final float[] repeatDelay = new float[Keyboard.KEYBOARD_SIZE];
+    final float[] repeatRate = new float[Keyboard.KEYBOARD_SIZE];
+
+    /**
+     * Compile a profile. The actions of the previous map are defined first
+     * and in the same order, so action IDs stay valid across reloads. Actions
+     * removed from the profile keep their ID without bindings.
+     */
+    CompiledProfile(BindingProfile profile, ActionMap previous) {
+        this.profile = profile;
+        if (previous != null)
+            for (int a = 0; a < previous.size(); a++)
+                actions.define(previous.getName(a));
+
+        for (BindingProfile.Action action : profile.actions) {
+            if (action.name == null || action.name.isBlank())
+                throw new IllegalArgumentException("Action without name");
+            int id = actions.define(action.name, mode(action.mode));
+            actions.unbind(id);
+            for (String key : action.keys)
+                actions.bindKey(id, BindingProfile.getKey(key));
+            for (String button : action.mouseButtons)
+                actions.bindMouseButton(id, BindingProfile.getMouseButton(button));
+            for (String button : action.gamePadButtons)
+                actions.bindGamePadButton(id, BindingProfile.getGamePadButton(button));
+            for (BindingProfile.AxisBinding axis : action.gamePadAxes)
+                actions.bindGamePadAxis(id, checkAxis(BindingProfile.getGamePadAxis(axis.axis)), axis.threshold);
+        }
+        actions.compile();
+
+        for (int axis = 0; axis < AXES; axis++)
+            outerDeadZone[axis] = 1f;
+        for (BindingProfile.DeadZone deadZone : profile.deadZones) {
+            int axis = checkAxis(BindingProfile.getGamePadAxis(deadZone.axis));
+            if (!(deadZone.inner >= 0f && deadZone.inner < deadZone.outer && deadZone.outer <= 1f))
+                throw new IllegalArgumentException("Invalid dead zone of axis " + deadZone.axis);
+            if (deadZone.radial) {
+                if (axis != GLFW.GLFW_GAMEPAD_AXIS_LEFT_X && axis != GLFW.GLFW_GAMEPAD_AXIS_RIGHT_X)
+                    throw new IllegalArgumentException("Radial dead zone needs a stick X axis: " + deadZone.axis);
+                radial[axis / 2] = true;
+                innerDeadZone[axis + 1] = deadZone.inner;
+                outerDeadZone[axis + 1] = deadZone.outer;
+            }
+            innerDeadZone[axis] = deadZone.inner;
+            outerDeadZone[axis] = deadZone.outer;
+        }
+
+        BindingProfile.KeyRepeat keyRepeat = profile.keyRepeat;
+        float delay = keyRepeat != null ? keyRepeat.delay : Keyboard.DEFAULT_REPEAT_DELAY;
+        float rate = keyRepeat != null ? keyRepeat.rate : Keyboard.DEFAULT_REPEAT_RATE;
+        checkRepeat(delay, rate);
+        Arrays.fill(repeatDelay, delay);
+        Arrays.fill(repeatRate, rate);
+        if (keyRepeat != null) {
+            for (BindingProfile.KeyRepeatOverride override : keyRepeat.keys) {
+                int key = BindingProfile.getKey(override.key);
+                if (key < 0 || key >= Keyboard.KEYBOARD_SIZE)
+                    throw new IllegalArgumentException("Invalid key: " + override.key);
+                if (override.delay != null)
+                    repeatDelay[key] = override.delay;
+                if (override.rate != null)
+                    repeatRate[key] = override.rate;
+                checkRepeat(repeatDelay[key], repeatRate[key]);
+            }
+        }
+    }
+
+    /**
+     * Apply the repeat settings to the keyboard. Keys without repeat settings
+     * in the profile are reset to the defaults of the keyboard, so nothing of
+     * a previous profile remains.
+     */
+    void apply(Keyboard keyboard) {
+        for (int key = 0; key < Keyboard.KEYBOARD_SIZE; key++)
+            keyboard.setKeyRepeat(key, repeatDelay[key], repeatRate[key]);
+    }
+
+    /**
+     * Apply the dead zones to the axis pipeline of the gamepad. Axes without
+     * a dead zone in the profile are reset to no dead zone.
+     */
+    void apply(GamePad pad) {
+        AxisPipeline pipeline = pad.getAxisPipeline();
+        for (int axis = 0; axis < AXES; axis++)
+            pipeline.setDeadZone(axis, innerDeadZone[axis], outerDeadZone[axis]);
+        for (int stick = 0; stick < radial.length; stick++) {
+            int axisX = stick * 2;
+            if (radial[stick])
+                pipeline.setRadialDeadZone(axisX, innerDeadZone[axisX], outerDeadZone[axisX]);
+        }
+    }
+
+    private static int mode(String mode) {
+        if (mode == null || mode.equalsIgnoreCase("any"))
+            return ActionMap.ANY;
+        if (mode.equalsIgnoreCase("all"))
+            return ActionMap.ALL;
+        throw new IllegalArgumentException("Invalid mode: " + mode);
+    }
+
+    private static int checkAxis(int axis) {
+        if (axis < 0 || axis >= AXES)
+            throw new IllegalArgumentException("Invalid axis: " + axis);
+        return axis;
+    }
+
+    private static void checkRepeat(float delay, float rate) {
+        if (!(delay >= 0f))
+            throw new IllegalArgumentException("Invalid repeat delay: " + delay);
+        if (!(rate >= 0f))
+            throw new IllegalArgumentException("Invalid repeat rate: " + rate);
+    }
+}
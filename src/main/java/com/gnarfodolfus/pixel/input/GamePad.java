@@ -1,43 +1,152 @@
 package com.gnarfodolfus.pixel.input;
 
-import java.nio.ByteBuffer;
 import org.lwjgl.glfw.GLFW;
-import org.lwjgl.glfw.GLFWGamepadState;
 import org.pixel.commons.DeltaTime;
 import org.pixel.commons.lifecycle.*;
 
 public class GamePad implements Updatable, Disposable {
 
+    static final int BUTTONS_COUNT = GLFW.GLFW_GAMEPAD_BUTTON_LAST + 1;
+    static final int AXES_COUNT = GLFW.GLFW_GAMEPAD_AXIS_LAST + 1;
+
     private final int jid;
-    private final String name;
-    private final GLFWGamepadState state;
+    private final InputBackend backend;
+    private String name;
+    private final byte[] buttonStates = new byte[BUTTONS_COUNT];
+    private final float[] axes = new float[AXES_COUNT];
+    private final float[] axesMin = new float[AXES_COUNT];
+    private final float[] axesMax = new float[AXES_COUNT];
+    private final float[] axesAverage = new float[AXES_COUNT];
+    private final AxisPipeline pipeline = new AxisPipeline();
 
     private boolean connected;
     
     private int buttons;
     private int lastButtons;
+    private int buttonsDown;
+    private int buttonsUp;
 
-    GamePad(int joystickId) {
+    GamePad(int joystickId, InputBackend backend) {
         this.jid = joystickId;
-        this.state = GLFWGamepadState.create();
-        this.name = GLFW.glfwGetGamepadName(jid);
-        this.connected = GLFW.glfwGetGamepadState(jid, state);
+        this.backend = backend;
+        this.name = backend.getGamePadName(jid);
+        this.connected = backend.getGamePadState(jid, buttonStates, axes);
+        if (!connected)
+            restAxes();
+    }
+
+    /**
+     * Creates a gamepad that is not backed by an input backend. Its state is
+     * set by {@link #replay}.
+     */
+    GamePad(int joystickId, String name) {
+        this.jid = joystickId;
+        this.backend = null;
+        this.name = name;
+        restAxes();
+    }
+
+    /**
+     * Called when a gamepad connects with the ID of this gamepad again, which
+     * may be a different device.
+     */
+    void reconnect() {
+        name = backend.getGamePadName(jid);
+        connected = backend.getGamePadState(jid, buttonStates, axes);
+        if (!connected)
+            restAxes();
+    }
+
+    /**
+     * Checks whether this gamepad only exists for a replay and is not backed
+     * by the input backend.
+     */
+    boolean isReplay() {
+        return backend == null;
     }
 
     @Override
     public void dispose() {
-        state.free();
     }
 
     @Override
     public void update(DeltaTime dt) {
-        connected = GLFW.glfwGetGamepadState(jid, state);
+        if (backend == null)
+            return; // replayed
+        connected = backend.getGamePadState(jid, buttonStates, axes);
         lastButtons = buttons;
         if (connected) {
-            buttons = toBitset(state.buttons());
+            buttons = toBitset(buttonStates);
         } else {
             buttons = 0;
+            restAxes();
         }
+        buttonsDown = buttons & ~lastButtons;
+        buttonsUp = lastButtons & ~buttons;
+        resetAxesRange();
+        processAxes(dt.getElapsed());
+    }
+
+    /**
+     * Apply everything the poller sampled since the last frame. Edges latched
+     * by the poller are reported even if the button state is the same as in
+     * the last frame.
+     */
+    void update(GamePadPoller.Slot slot, float elapsed) {
+        lastButtons = buttons;
+        int samples = slot.samples[jid];
+        if (samples == 0) { // poller slower than the frame rate
+            buttonsDown = 0;
+            buttonsUp = 0;
+            resetAxesRange();
+            processAxes(elapsed);
+            return;
+        }
+        connected = slot.connected[jid];
+        buttons = slot.buttons[jid];
+        buttonsDown = slot.pressed[jid] | (buttons & ~lastButtons);
+        buttonsUp = slot.released[jid] | (lastButtons & ~buttons);
+        int offset = jid * AXES_COUNT;
+        for (int i = 0; i < AXES_COUNT; i++) {
+            axes[i] = slot.axes[offset + i];
+            axesMin[i] = slot.min[offset + i];
+            axesMax[i] = slot.max[offset + i];
+            axesAverage[i] = slot.sum[offset + i] / samples;
+        }
+        processAxes(elapsed);
+    }
+
+    void replay(boolean connected, int buttons, int down, int up, float[] axes, int axesOffset, float elapsed) {
+        this.connected = connected;
+        this.lastButtons = this.buttons;
+        this.buttons = buttons;
+        this.buttonsDown = down | (buttons & ~lastButtons);
+        this.buttonsUp = up | (lastButtons & ~buttons);
+        System.arraycopy(axes, axesOffset, this.axes, 0, AXES_COUNT);
+        resetAxesRange();
+        processAxes(elapsed);
+    }
+
+    private void processAxes(float elapsed) {
+        if (connected)
+            pipeline.process(axes, elapsed);
+        else
+            pipeline.reset();
+    }
+
+    /**
+     * Center the sticks and release the triggers, like an idle gamepad
+     * reports them.
+     */
+    private void restAxes() {
+        for (int i = 0; i < AXES_COUNT; i++)
+            axes[i] = AxisPipeline.rest(i);
+    }
+
+    private void resetAxesRange() {
+        System.arraycopy(axes, 0, axesMin, 0, AXES_COUNT);
+        System.arraycopy(axes, 0, axesMax, 0, AXES_COUNT);
+        System.arraycopy(axes, 0, axesAverage, 0, AXES_COUNT);
     }
 
     public int getId() {
@@ -71,7 +180,7 @@ public class GamePad implements Updatable, Disposable {
      * @return True if the mouse button was pressed, false otherwise.
      */
     public boolean getButtonDown(int button) {
-        return (buttons & (1 << button)) > (lastButtons & (1 << button));
+        return (buttonsDown & (1 << button)) != 0;
     }
 
     /**
@@ -82,7 +191,7 @@ public class GamePad implements Updatable, Disposable {
      * @return True if the mouse button was released, false otherwise.
      */
     public boolean getButtonUp(int button) {
-        return (buttons & (1 << button)) < (lastButtons & (1 << button));
+        return (buttonsUp & (1 << button)) != 0;
     }
 
     /**
@@ -102,7 +211,7 @@ public class GamePad implements Updatable, Disposable {
      * @return Bit set of pressed buttons in this frame.
      */
     public int getButtonsDown() {
-        return buttons & (buttons ^ lastButtons);
+        return buttonsDown;
     }
 
     /**
@@ -112,26 +221,164 @@ public class GamePad implements Updatable, Disposable {
      * @return Bit set of released buttons in this frame.
      */
     public int getButtonsUp() {
-        return lastButtons & (buttons ^ lastButtons);
+        return buttonsUp;
+    }
+
+    /**
+     * Returns the pipeline processing the axe values of this gamepad, e.g. to
+     * configure dead zones.
+     *
+     * @return Axis pipeline
+     */
+    public AxisPipeline getAxisPipeline() {
+        return pipeline;
     }
 
     /**
-     * Get the axe value of the given axe.
+     * Get the axe value of the given axe after dead zones, response curve and
+     * smoothing of the {@link #getAxisPipeline() axis pipeline}.
      *
      * @param axeId Axe ID according to GLFW, e.g.
      * {@link GLFW#GLFW_GAMEPAD_AXIS_LEFT_X}
      * @return The axe value.
      */
     public float getAxeValue(int axeId) {
-        // TODO: Do we need the frame delta here as well? Maybe implement it.
-        return state.axes(axeId);
+        return pipeline.getValue(axeId);
+    }
+
+    /**
+     * Get the unprocessed axe value as reported by the gamepad.
+     *
+     * @param axeId Axe ID according to GLFW, e.g.
+     * {@link GLFW#GLFW_GAMEPAD_AXIS_LEFT_X}
+     * @return The raw axe value.
+     */
+    public float getAxeRawValue(int axeId) {
+        return axes[axeId];
+    }
+
+    /**
+     * Get the change of the processed axe value since the last frame.
+     *
+     * @param axeId Axe ID according to GLFW, e.g.
+     * {@link GLFW#GLFW_GAMEPAD_AXIS_LEFT_X}
+     * @return The axe value delta.
+     */
+    public float getAxeDelta(int axeId) {
+        return pipeline.getDelta(axeId);
+    }
+
+    /**
+     * Get the change of the processed axe value per second in the last frame.
+     *
+     * @param axeId Axe ID according to GLFW, e.g.
+     * {@link GLFW#GLFW_GAMEPAD_AXIS_LEFT_X}
+     * @return The axe velocity.
+     */
+    public float getAxeVelocity(int axeId) {
+        return pipeline.getVelocity(axeId);
+    }
+
+    /**
+     * Checks whether the axe is pushed beyond the button threshold of the
+     * {@link #getAxisPipeline() axis pipeline}.
+     *
+     * @param axeId Axe ID according to GLFW, e.g.
+     * {@link GLFW#GLFW_GAMEPAD_AXIS_LEFT_X}
+     * @param negative Check the negative direction instead of the positive one
+     * @return True if the axe button is pressed, false otherwise.
+     */
+    public boolean getAxeButton(int axeId, boolean negative) {
+        return (pipeline.getButtons() & axeButtonMask(axeId, negative)) != 0;
+    }
+
+    /**
+     * Checks whether the axe button was pressed this frame.
+     *
+     * @param axeId Axe ID according to GLFW, e.g.
+     * {@link GLFW#GLFW_GAMEPAD_AXIS_LEFT_X}
+     * @param negative Check the negative direction instead of the positive one
+     * @return True if the axe button was pressed, false otherwise.
+     */
+    public boolean getAxeButtonDown(int axeId, boolean negative) {
+        return (pipeline.getButtonsDown() & axeButtonMask(axeId, negative)) != 0;
+    }
+
+    /**
+     * Checks whether the axe button was released this frame.
+     *
+     * @param axeId Axe ID according to GLFW, e.g.
+     * {@link GLFW#GLFW_GAMEPAD_AXIS_LEFT_X}
+     * @param negative Check the negative direction instead of the positive one
+     * @return True if the axe button was released, false otherwise.
+     */
+    public boolean getAxeButtonUp(int axeId, boolean negative) {
+        return (pipeline.getButtonsUp() & axeButtonMask(axeId, negative)) != 0;
+    }
+
+    /**
+     * Returns a bit set of the pressed axe buttons. The positive direction of
+     * an axe is bit {@code 2 * axeId}, the negative direction bit
+     * {@code 2 * axeId + 1}.
+     *
+     * @return Bit set of pressed axe buttons.
+     */
+    public int getAxeButtons() {
+        return pipeline.getButtons();
+    }
+
+    public int getAxeButtonsDown() {
+        return pipeline.getButtonsDown();
+    }
+
+    public int getAxeButtonsUp() {
+        return pipeline.getButtonsUp();
+    }
+
+    private static int axeButtonMask(int axeId, boolean negative) {
+        return 1 << (axeId * 2 + (negative ? 1 : 0));
+    }
+
+    /**
+     * Get the minimum value of the given axe since the last frame. Without
+     * high frequency polling this is the same as {@link #getAxeRawValue(int)}.
+     *
+     * @param axeId Axe ID according to GLFW, e.g.
+     * {@link GLFW#GLFW_GAMEPAD_AXIS_LEFT_X}
+     * @return The minimum axe value.
+     */
+    public float getAxeMin(int axeId) {
+        return axesMin[axeId];
+    }
+
+    /**
+     * Get the maximum value of the given axe since the last frame. Without
+     * high frequency polling this is the same as {@link #getAxeRawValue(int)}.
+     *
+     * @param axeId Axe ID according to GLFW, e.g.
+     * {@link GLFW#GLFW_GAMEPAD_AXIS_LEFT_X}
+     * @return The maximum axe value.
+     */
+    public float getAxeMax(int axeId) {
+        return axesMax[axeId];
+    }
+
+    /**
+     * Get the average value of the given axe since the last frame. Without
+     * high frequency polling this is the same as {@link #getAxeRawValue(int)}.
+     *
+     * @param axeId Axe ID according to GLFW, e.g.
+     * {@link GLFW#GLFW_GAMEPAD_AXIS_LEFT_X}
+     * @return The average axe value.
+     */
+    public float getAxeAverage(int axeId) {
+        return axesAverage[axeId];
     }
 
-    private static int toBitset(ByteBuffer buf) {
+    static int toBitset(byte[] buf) {
         int value = 0;
-        int len = buf.remaining();
-        for (int i = 0; i < len; i++) {
-            if (buf.get(i) > 0)
+        for (int i = 0; i < buf.length; i++) {
+            if (buf[i] > 0)
                 value |= 1 << i;
         }
         return value;
@@ -0,0 +1,13 @@
+package com.gnarfodolfus.pixel.input;
+
+/**
+ * Notified when a gamepad is connected or disconnected. Listeners are called
+ * during {@link Input#update}. A gamepad keeps its {@link GamePad} instance
+ * across reconnects, so references to it stay valid.
+ */
+public interface GamePadListener {
+
+    void connected(GamePad pad);
+
+    void disconnected(GamePad pad);
+}
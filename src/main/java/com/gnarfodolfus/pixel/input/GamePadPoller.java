@@ -0,0 +1,178 @@
+package com.gnarfodolfus.pixel.input;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Samples all gamepads on a dedicated thread at a fixed rate, independent of
+ * the frame rate. Button edges are latched and axis min/max/sum are
+ * accumulated between frames, so no button tap is missed even if it is
+ * shorter than a frame.
+ *
+ * <p>
+ * Samples are written into one of two preallocated slots. Once per frame the
+ * game thread flips the slots with {@link #swap()} and reads the retired slot
+ * while the poller continues writing into the other one. The handoff is lock
+ * free: the poller claims the active slot for each sample and the game thread
+ * only waits for a sample that claimed the retired slot before the flip.
+ *
+ * <p>
+ * The backend is read concurrently to the game thread, so it must support it,
+ * see {@link InputBackend#supportsGamePadPolling()}.
+ */
+final class GamePadPoller implements Runnable {
+
+    static final int PADS = GLFW.GLFW_JOYSTICK_LAST + 1;
+
+    private final InputBackend backend;
+    private final long periodNanos;
+    private final Slot[] slots = {new Slot(), new Slot()};
+
+    // Poller thread state
+    private final int[] current = new int[PADS];
+    private final byte[] buttonStates = new byte[GamePad.BUTTONS_COUNT];
+    private final float[] axes = new float[GamePad.AXES_COUNT];
+
+    private volatile int active; // slot written by the poller
+    private volatile int inUse = -1; // slot of the sample in progress, -1 if none
+    private volatile int padMask; // joystick IDs to sample
+    private volatile boolean running;
+    private Thread thread;
+
+    GamePadPoller(InputBackend backend, int rateHz) {
+        if (rateHz <= 0)
+            throw new IllegalArgumentException("rateHz <= 0");
+        this.backend = backend;
+        this.periodNanos = 1_000_000_000L / rateHz;
+    }
+
+    void start() {
+        running = true;
+        thread = new Thread(this, "GamePadPoller");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    /**
+     * Set the joystick IDs to sample, one bit per ID.
+     */
+    void setPadMask(int mask) {
+        padMask = mask;
+    }
+
+    /**
+     * Flip the slots and return the slot holding everything sampled since the
+     * previous swap. The returned slot stays valid until the next swap. Must
+     * only be called by a single thread.
+     */
+    Slot swap() {
+        int old = active;
+        Slot retired = slots[old];
+        slots[1 - old].reset();
+        active = 1 - old;
+        // A sample that claimed the old slot before the flip is finishing,
+        // it takes microseconds unless the poller was descheduled
+        for (int spins = 0; inUse == old; spins++) {
+            if (spins < 100)
+                Thread.onSpinWait();
+            else
+                Thread.yield();
+        }
+        return retired;
+    }
+
+    @Override
+    public void run() {
+        long next = System.nanoTime();
+        while (running) {
+            sample();
+            next += periodNanos;
+            long wait = next - System.nanoTime();
+            if (wait > 0)
+                LockSupport.parkNanos(wait);
+            else
+                next = System.nanoTime(); // too slow, don't try to catch up
+        }
+    }
+
+    private void sample() {
+        // Claim the active slot, retry if the game thread flipped meanwhile
+        int index;
+        do {
+            index = active;
+            inUse = index;
+        } while (active != index);
+        Slot slot = slots[index];
+        int mask = padMask;
+        for (int jid = 0; jid < PADS; jid++) {
+            if ((mask & (1 << jid)) == 0)
+                continue;
+            boolean connected = backend.getGamePadState(jid, buttonStates, axes);
+            int buttons = connected ? GamePad.toBitset(buttonStates) : 0;
+            int last = current[jid];
+            current[jid] = buttons;
+            slot.connected[jid] = connected;
+            slot.buttons[jid] = buttons;
+            if ((buttons & ~last) != 0 && slot.pressTime[jid] == 0L)
+                slot.pressTime[jid] = System.nanoTime();
+            slot.pressed[jid] |= buttons & ~last;
+            slot.released[jid] |= last & ~buttons;
+            slot.samples[jid]++;
+            int offset = jid * GamePad.AXES_COUNT;
+            for (int i = 0; i < GamePad.AXES_COUNT; i++) {
+                float value = connected ? axes[i] : AxisPipeline.rest(i);
+                slot.axes[offset + i] = value;
+                slot.min[offset + i] = Math.min(slot.min[offset + i], value);
+                slot.max[offset + i] = Math.max(slot.max[offset + i], value);
+                slot.sum[offset + i] += value;
+            }
+        }
+        inUse = -1;
+    }
+
+    /**
+     * Everything sampled between two frames, indexed by joystick ID.
+     */
+    static final class Slot {
+
+        final boolean[] connected = new boolean[PADS];
+        final int[] buttons = new int[PADS];
+        final int[] pressed = new int[PADS];
+        final int[] released = new int[PADS];
+        final int[] samples = new int[PADS];
+        final long[] pressTime = new long[PADS]; // first press of the slot, 0 if none
+        final float[] axes = new float[PADS * GamePad.AXES_COUNT];
+        final float[] min = new float[PADS * GamePad.AXES_COUNT];
+        final float[] max = new float[PADS * GamePad.AXES_COUNT];
+        final float[] sum = new float[PADS * GamePad.AXES_COUNT];
+
+        Slot() {
+            reset();
+        }
+
+        void reset() {
+            Arrays.fill(pressed, 0);
+            Arrays.fill(released, 0);
+            Arrays.fill(samples, 0);
+            Arrays.fill(pressTime, 0L);
+            Arrays.fill(min, Float.POSITIVE_INFINITY);
+            Arrays.fill(max, Float.NEGATIVE_INFINITY);
+            Arrays.fill(sum, 0f);
+        }
+    }
+}
@@ -6,58 +6,327 @@ import org.pixel.commons.DeltaTime;
 import org.pixel.commons.lifecycle.Disposable;
 import org.pixel.commons.lifecycle.Updatable;
 
-class GamePads implements Updatable, Disposable {
+/**
+ * Gamepads and joysticks indexed by joystick ID. Connection changes are
+ * reported by the backend, queued and applied at the start of the next
+ * {@link #update}. Each joystick ID keeps its {@link GamePad} and
+ * {@link Joystick} instances across reconnects. Joysticks are always read
+ * during the update, never by the poller.
+ */
+class GamePads implements Updatable, Disposable, InputBackend.JoystickListener {
 
+    static final int PADS = GLFW.GLFW_JOYSTICK_LAST + 1;
+
+    private final GamePad[] gamePads = new GamePad[PADS];
+    private final List<GamePad> connected = new ArrayList<>(PADS);
+    private final List<GamePad> connectedView = Collections.unmodifiableList(connected);
+    private final List<GamePadListener> listeners = new ArrayList<>();
+
+    private final Joystick[] joysticks = new Joystick[PADS];
+    private final List<Joystick> connectedJoysticks = new ArrayList<>(PADS);
+    private final List<Joystick> connectedJoysticksView = Collections.unmodifiableList(connectedJoysticks);
+
+    // Pending connection events, jid << 1 | connected
+    private final int[] pending = new int[64];
+    private int pendingCount;
+
+    private InputBackend backend;
+    private GamePadPoller poller;
+    private int pollingRate;
     private GamePad defaultGamePad = null;
-    private final NavigableMap<Integer, GamePad> gamePads = new TreeMap<>();
+    private int connectedMask;
+    private GamePadPoller.Slot lastSlot;
 
     @Override
     public void update(DeltaTime dt) {
-        gamePads.forEach((id, pad) -> pad.update(dt));
+        applyPending();
+        GamePadPoller.Slot slot = poller != null ? poller.swap() : null;
+        lastSlot = slot;
+        for (int jid = 0; jid < PADS; jid++) {
+            GamePad pad = gamePads[jid];
+            if (pad == null)
+                continue;
+            if ((connectedMask & (1 << jid)) == 0) {
+                // Not sampled by the poller any more, read the backend
+                // until the buttons are released
+                if (pad.isConnected() || pad.getButtons() != 0 || pad.getButtonsUp() != 0)
+                    pad.update(dt);
+            } else if (slot != null) {
+                pad.update(slot, dt.getElapsed());
+            } else {
+                pad.update(dt);
+            }
+        }
+        for (int jid = 0; jid < PADS; jid++) {
+            Joystick joystick = joysticks[jid];
+            if (joystick != null)
+                joystick.update();
+        }
     }
 
     @Override
     public void dispose() {
-        gamePads.forEach((id, pad) -> pad.dispose());
-        gamePads.clear();
+        setPollingRate(0);
+        if (backend != null)
+            backend.setJoystickListener(null);
+        for (int jid = 0; jid < PADS; jid++) {
+            if (gamePads[jid] != null) {
+                gamePads[jid].dispose();
+                gamePads[jid] = null;
+            }
+            joysticks[jid] = null;
+        }
+        connected.clear();
+        connectedJoysticks.clear();
+        connectedMask = 0;
+        lastSlot = null;
+        defaultGamePad = null;
+        pendingCount = 0;
     }
-    
-    public void scan() {
-        for (int id = GLFW.GLFW_JOYSTICK_1; id <= GLFW.GLFW_JOYSTICK_LAST; id++) {
-            GamePad pad = gamePads.get(id);
-            if (pad != null) {
-                if (!pad.isConnected()) {
-                    pad.dispose();
-                    gamePads.remove(id);
-                }
+
+    /**
+     * Returns the time the poller sampled the first button press of the
+     * gamepad since the previous update.
+     *
+     * @return Time as returned by {@link System#nanoTime()} or zero if there
+     * was no press or no poller
+     */
+    long getPressTime(int jid) {
+        return lastSlot != null && (connectedMask & (1 << jid)) != 0 ? lastSlot.pressTime[jid] : 0L;
+    }
+
+    void init(InputBackend backend) {
+        if (pollingRate > 0 && !backend.supportsGamePadPolling())
+            throw new IllegalStateException("Gamepad polling not supported by " + backend.getClass().getName());
+        if (this.backend != backend) {
+            int rate = pollingRate;
+            dispose(); // pads of the previous backend
+            this.backend = backend;
+            setPollingRate(rate);
+        }
+        backend.setJoystickListener(this);
+    }
+
+    @Override
+    public void onJoystick(int jid, int event) {
+        if (jid < 0 || jid >= PADS)
+            return;
+        if (pendingCount == pending.length) {
+            // Should not happen, but a full rescan catches up on everything
+            pendingCount = 0;
+            pending[pendingCount++] = -1;
+        }
+        pending[pendingCount++] = (jid << 1) | (event == GLFW.GLFW_CONNECTED ? 1 : 0);
+    }
+
+    private void applyPending() {
+        for (int i = 0; i < pendingCount; i++) {
+            int value = pending[i];
+            if (value == -1) {
+                scan();
+                continue;
+            }
+            int jid = value >>> 1;
+            if ((value & 1) != 0) {
+                if (backend.isGamePad(jid))
+                    connect(jid);
+                if (backend.isJoystick(jid))
+                    connectJoystick(jid);
             } else {
-                if (GLFW.glfwJoystickIsGamepad(id)) {
-                    pad = new GamePad(id);
-                    if (pad.isConnected()) { // Should be true
-                        gamePads.put(id, pad);
-                    }
-                }
+                disconnect(jid);
+                disconnectJoystick(jid);
             }
         }
-        updateDefault();
+        pendingCount = 0;
+    }
+
+    /**
+     * Check all joystick IDs for gamepads and joysticks. Only needed on
+     * startup, afterwards connection changes are reported by the backend.
+     */
+    public void scan() {
+        if (backend == null)
+            return;
+        for (int jid = 0; jid < PADS; jid++) {
+            if (backend.isGamePad(jid))
+                connect(jid);
+            else
+                disconnect(jid);
+            if (backend.isJoystick(jid))
+                connectJoystick(jid);
+            else
+                disconnectJoystick(jid);
+        }
+    }
+
+    private void connect(int jid) {
+        GamePad pad = gamePads[jid];
+        if (pad != null && connected.contains(pad))
+            return;
+        if (pad == null || pad.isReplay()) {
+            pad = new GamePad(jid, backend);
+            gamePads[jid] = pad;
+        } else {
+            pad.reconnect();
+        }
+        int index = 0;
+        while (index < connected.size() && connected.get(index).getId() < jid)
+            index++;
+        connected.add(index, pad);
+        connectionChanged();
+        for (int i = 0; i < listeners.size(); i++)
+            listeners.get(i).connected(pad);
+    }
+
+    private void disconnect(int jid) {
+        GamePad pad = gamePads[jid];
+        if (pad == null || !connected.remove(pad))
+            return;
+        connectionChanged();
+        for (int i = 0; i < listeners.size(); i++)
+            listeners.get(i).disconnected(pad);
+    }
+
+    private void connectJoystick(int jid) {
+        Joystick joystick = joysticks[jid];
+        if (joystick != null && connectedJoysticks.contains(joystick))
+            return;
+        if (joystick == null) {
+            joystick = new Joystick(jid, backend);
+            joysticks[jid] = joystick;
+        } else {
+            joystick.reconnect();
+        }
+        int index = 0;
+        while (index < connectedJoysticks.size() && connectedJoysticks.get(index).getId() < jid)
+            index++;
+        connectedJoysticks.add(index, joystick);
+    }
+
+    private void disconnectJoystick(int jid) {
+        Joystick joystick = joysticks[jid];
+        if (joystick != null)
+            connectedJoysticks.remove(joystick);
+    }
+
+    private void connectionChanged() {
+        defaultGamePad = connected.isEmpty() ? null : connected.get(0);
+        connectedMask = 0;
+        for (int i = 0; i < connected.size(); i++)
+            connectedMask |= 1 << connected.get(i).getId();
+        if (poller != null)
+            poller.setPadMask(connectedMask);
+    }
+
+    void addListener(GamePadListener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(GamePadListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Sample the gamepads on a dedicated thread at the given rate instead of
+     * once per frame. Zero disables the poller. Fails if the backend does not
+     * support it, see {@link InputBackend#supportsGamePadPolling()}.
+     */
+    void setPollingRate(int rateHz) {
+        if (rateHz < 0)
+            throw new IllegalArgumentException("rateHz < 0");
+        if (rateHz > 0 && backend != null && !backend.supportsGamePadPolling())
+            throw new IllegalStateException("Gamepad polling not supported by " + backend.getClass().getName());
+        if (poller != null) {
+            poller.stop();
+            poller = null;
+        }
+        pollingRate = rateHz;
+        if (rateHz > 0 && backend != null) {
+            poller = new GamePadPoller(backend, rateHz);
+            poller.setPadMask(connectedMask);
+            poller.start();
+        }
+    }
+
+    int getPollingRate() {
+        return pollingRate;
+    }
+
+    /**
+     * Returns the gamepad with the given ID for replaying a recording. A pad
+     * that is not backed by the input backend is created if there is none.
+     */
+    GamePad getReplay(int jid) {
+        GamePad pad = gamePads[jid];
+        if (pad == null) {
+            pad = new GamePad(jid, "Replay " + jid);
+            gamePads[jid] = pad;
+            if (defaultGamePad == null)
+                defaultGamePad = pad;
+        }
+        return pad;
     }
-    
-    private void updateDefault() {
-        var entry = gamePads.firstEntry();
-        if (entry != null) {
-            defaultGamePad = entry.getValue();
+
+    /**
+     * Remove the gamepads created by {@link #getReplay(int)} after a replay.
+     * They have no backend and would keep their last replayed state forever.
+     */
+    void removeReplayPads() {
+        for (int jid = 0; jid < PADS; jid++) {
+            GamePad pad = gamePads[jid];
+            if (pad != null && pad.isReplay()) {
+                pad.dispose();
+                gamePads[jid] = null;
+            }
         }
+        defaultGamePad = connected.isEmpty() ? null : connected.get(0);
     }
-    
+
     public GamePad getDefault() {
         return defaultGamePad;
     }
-    
+
+    /**
+     * Returns the gamepad with the given joystick ID. The instance is kept
+     * when the gamepad disconnects and is reused when a gamepad connects with
+     * the same ID again.
+     *
+     * @param jid Joystick ID
+     * @return The gamepad or {@code null} if there never was one at that ID
+     */
     public GamePad get(int jid) {
-        return gamePads.get(jid);
+        return jid >= 0 && jid < PADS ? gamePads[jid] : null;
+    }
+
+    /**
+     * Returns the connected gamepads ordered by joystick ID. The list is a
+     * live view and must not be modified.
+     *
+     * @return Connected gamepads
+     */
+    public List<GamePad> getAll() {
+        return connectedView;
     }
-    
-    public Collection<GamePad> getAll() {
-        return gamePads.values();
+
+    /**
+     * Returns the joystick with the given joystick ID. The instance is kept
+     * when the joystick disconnects and is reused when a joystick connects
+     * with the same ID again.
+     *
+     * @param jid Joystick ID
+     * @return The joystick or {@code null} if there never was one at that ID
+     */
+    public Joystick getJoystick(int jid) {
+        return jid >= 0 && jid < PADS ? joysticks[jid] : null;
+    }
+
+    /**
+     * Returns the connected joysticks ordered by joystick ID, gamepads
+     * included. The list is a live view and must not be modified.
+     *
+     * @return Connected joysticks
+     */
+    public List<Joystick> getJoysticks() {
+        return connectedJoysticksView;
     }
 }
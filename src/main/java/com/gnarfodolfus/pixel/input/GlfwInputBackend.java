@@ -0,0 +1,237 @@
+package com.gnarfodolfus.pixel.input;
+
+import java.nio.*;
+import java.util.*;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.glfw.*;
+import org.lwjgl.system.Callback;
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * Input backend reading events and gamepads from GLFW. Events are delivered
+ * by the GLFW callbacks while the window polls its events, so {@link #poll()}
+ * has nothing to do.
+ */
+public final class GlfwInputBackend implements InputBackend {
+
+    private final Map<Long, WindowCallbacks> windows = new HashMap<>();
+    private GLFWJoystickCallback joystickCallback;
+    private GLFWGamepadState state;
+
+    // Views of the joystick arrays owned by GLFW. The arrays stay at the same
+    // address while the joystick is connected, so the views are only created
+    // again after a reconnect
+    private final IntBuffer count = BufferUtils.createIntBuffer(1);
+    private final ByteBuffer[] buttons = new ByteBuffer[GLFW.GLFW_JOYSTICK_LAST + 1];
+    private final FloatBuffer[] axes = new FloatBuffer[GLFW.GLFW_JOYSTICK_LAST + 1];
+    private final ByteBuffer[] hats = new ByteBuffer[GLFW.GLFW_JOYSTICK_LAST + 1];
+
+    @Override
+    public void poll() {
+        // Events are delivered by glfwPollEvents of the window loop
+    }
+
+    @Override
+    public void setKeyListener(long window, KeyListener listener) {
+        WindowCallbacks callbacks = callbacks(window);
+        GLFWKeyCallback callback = listener != null
+                ? GLFWKeyCallback.create((w, key, scanCode, action, mods) -> listener.onKey(key, scanCode, action, mods))
+                : null;
+        GLFW.glfwSetKeyCallback(window, callback);
+        free(callbacks.key);
+        callbacks.key = callback;
+    }
+
+    @Override
+    public void setCharListener(long window, CharListener listener) {
+        WindowCallbacks callbacks = callbacks(window);
+        GLFWCharCallback callback = listener != null
+                ? GLFWCharCallback.create((w, codepoint) -> listener.onChar(codepoint))
+                : null;
+        GLFW.glfwSetCharCallback(window, callback);
+        free(callbacks.text);
+        callbacks.text = callback;
+    }
+
+    @Override
+    public void setCursorPosListener(long window, CursorPosListener listener) {
+        WindowCallbacks callbacks = callbacks(window);
+        GLFWCursorPosCallback callback = listener != null
+                ? GLFWCursorPosCallback.create((w, x, y) -> listener.onCursorPos(x, y))
+                : null;
+        GLFW.glfwSetCursorPosCallback(window, callback);
+        free(callbacks.cursor);
+        callbacks.cursor = callback;
+    }
+
+    @Override
+    public void setMouseButtonListener(long window, MouseButtonListener listener) {
+        WindowCallbacks callbacks = callbacks(window);
+        GLFWMouseButtonCallback callback = listener != null
+                ? GLFWMouseButtonCallback.create((w, button, action, mods) -> listener.onMouseButton(button, action, mods))
+                : null;
+        GLFW.glfwSetMouseButtonCallback(window, callback);
+        free(callbacks.button);
+        callbacks.button = callback;
+    }
+
+    @Override
+    public void setScrollListener(long window, ScrollListener listener) {
+        WindowCallbacks callbacks = callbacks(window);
+        GLFWScrollCallback callback = listener != null
+                ? GLFWScrollCallback.create((w, xoffset, yoffset) -> listener.onScroll(xoffset, yoffset))
+                : null;
+        GLFW.glfwSetScrollCallback(window, callback);
+        free(callbacks.scroll);
+        callbacks.scroll = callback;
+    }
+
+    @Override
+    public void setFocusListener(long window, FocusListener listener) {
+        WindowCallbacks callbacks = callbacks(window);
+        GLFWWindowFocusCallback callback = listener != null
+                ? GLFWWindowFocusCallback.create((w, focused) -> listener.onFocus(focused))
+                : null;
+        GLFW.glfwSetWindowFocusCallback(window, callback);
+        free(callbacks.focus);
+        callbacks.focus = callback;
+    }
+
+    @Override
+    public String getKeyName(int key, int scanCode) {
+        return GLFW.glfwGetKeyName(key, scanCode);
+    }
+
+    @Override
+    public int getKeyScancode(int key) {
+        return GLFW.glfwGetKeyScancode(key);
+    }
+
+    @Override
+    public void setCursorDisabled(long window, boolean disabled) {
+        GLFW.glfwSetInputMode(window, GLFW.GLFW_CURSOR, disabled ? GLFW.GLFW_CURSOR_DISABLED : GLFW.GLFW_CURSOR_NORMAL);
+    }
+
+    @Override
+    public boolean setRawMouseMotion(long window, boolean enabled) {
+        if (!GLFW.glfwRawMouseMotionSupported())
+            return false;
+        GLFW.glfwSetInputMode(window, GLFW.GLFW_RAW_MOUSE_MOTION, enabled ? GLFW.GLFW_TRUE : GLFW.GLFW_FALSE);
+        return true;
+    }
+
+    @Override
+    public void setJoystickListener(JoystickListener listener) {
+        GLFWJoystickCallback callback = listener != null
+                ? GLFWJoystickCallback.create((jid, event) -> listener.onJoystick(jid, event))
+                : null;
+        GLFW.glfwSetJoystickCallback(callback);
+        free(joystickCallback);
+        joystickCallback = callback;
+    }
+
+    @Override
+    public boolean isGamePad(int jid) {
+        return GLFW.glfwJoystickIsGamepad(jid);
+    }
+
+    @Override
+    public String getGamePadName(int jid) {
+        return GLFW.glfwGetGamepadName(jid);
+    }
+
+    @Override
+    public boolean getGamePadState(int jid, byte[] buttons, float[] axes) {
+        if (state == null)
+            state = GLFWGamepadState.create();
+        if (!GLFW.glfwGetGamepadState(jid, state))
+            return false;
+        for (int i = 0; i <= GLFW.GLFW_GAMEPAD_BUTTON_LAST; i++)
+            buttons[i] = state.buttons(i);
+        for (int i = 0; i <= GLFW.GLFW_GAMEPAD_AXIS_LAST; i++)
+            axes[i] = state.axes(i);
+        return true;
+    }
+
+    @Override
+    public boolean supportsGamePadPolling() {
+        return false; // joystick functions must be called from the main thread
+    }
+
+    @Override
+    public boolean isJoystick(int jid) {
+        return GLFW.glfwJoystickPresent(jid);
+    }
+
+    @Override
+    public String getJoystickName(int jid) {
+        return GLFW.glfwGetJoystickName(jid);
+    }
+
+    @Override
+    public ByteBuffer getJoystickButtons(int jid) {
+        long address = GLFW.nglfwGetJoystickButtons(jid, MemoryUtil.memAddress(count));
+        ByteBuffer view = buttons[jid];
+        if (address == 0L) {
+            buttons[jid] = null;
+            return null;
+        }
+        if (view == null || MemoryUtil.memAddress(view) != address || view.capacity() != count.get(0)) {
+            view = MemoryUtil.memByteBuffer(address, count.get(0));
+            buttons[jid] = view;
+        }
+        return view;
+    }
+
+    @Override
+    public FloatBuffer getJoystickAxes(int jid) {
+        long address = GLFW.nglfwGetJoystickAxes(jid, MemoryUtil.memAddress(count));
+        FloatBuffer view = axes[jid];
+        if (address == 0L) {
+            axes[jid] = null;
+            return null;
+        }
+        if (view == null || MemoryUtil.memAddress(view) != address || view.capacity() != count.get(0)) {
+            view = MemoryUtil.memFloatBuffer(address, count.get(0));
+            axes[jid] = view;
+        }
+        return view;
+    }
+
+    @Override
+    public ByteBuffer getJoystickHats(int jid) {
+        long address = GLFW.nglfwGetJoystickHats(jid, MemoryUtil.memAddress(count));
+        ByteBuffer view = hats[jid];
+        if (address == 0L) {
+            hats[jid] = null;
+            return null;
+        }
+        if (view == null || MemoryUtil.memAddress(view) != address || view.capacity() != count.get(0)) {
+            view = MemoryUtil.memByteBuffer(address, count.get(0));
+            hats[jid] = view;
+        }
+        return view;
+    }
+
+    private WindowCallbacks callbacks(long window) {
+        return windows.computeIfAbsent(window, w -> new WindowCallbacks());
+    }
+
+    private static void free(Callback callback) {
+        if (callback != null)
+            callback.free();
+    }
+
+    /**
+     * Callbacks installed by this backend, freed when they are replaced.
+     */
+    private static class WindowCallbacks {
+
+        private GLFWKeyCallback key;
+        private GLFWCharCallback text;
+        private GLFWCursorPosCallback cursor;
+        private GLFWMouseButtonCallback button;
+        private GLFWScrollCallback scroll;
+        private GLFWWindowFocusCallback focus;
+    }
+}
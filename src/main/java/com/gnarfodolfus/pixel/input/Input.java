@@ -1,53 +1,382 @@
 package com.gnarfodolfus.pixel.input;
 
-import java.util.Collection;
+import java.io.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import org.pixel.commons.DeltaTime;
 
+/**
+ * Input of the main window and the gamepads. The keyboard and mouse of the
+ * main window are a {@link WindowInput}, other windows can have their own
+ * {@link WindowInput}. Gamepads are shared by all windows.
+ */
 public final class Input {
 
-    private static final Mouse mouse = new Mouse();
-    private static final Keyboard keyboard = new Keyboard();
+    private static final WindowInput window = new WindowInput();
     private static final GamePads gamePads = new GamePads();
+    private static final SnapshotPublisher snapshots = new SnapshotPublisher();
+    private static final List<InputLatch> latches = new ArrayList<>();
+    private static final InputMetrics metrics = new InputMetrics();
 
+    private static InputBackend backend;
+    private static InputRecorder recorder;
+    private static InputPlayer player;
+    private static InputHistory history;
+    private static boolean metricsEnabled;
+
+    /**
+     * Initialize input handling of the given GLFW window.
+     *
+     * @param windowHandle GLFW window handle
+     */
     public static void init(long windowHandle) {
-        mouse.init(windowHandle);
-        keyboard.init(windowHandle);
+        init(backend instanceof GlfwInputBackend ? backend : new GlfwInputBackend(), windowHandle);
+    }
+
+    /**
+     * Initialize input handling of the given window using the given backend,
+     * e.g. a {@link SyntheticInputBackend} to run without a window.
+     *
+     * @param inputBackend Input backend
+     * @param windowHandle Window handle of the backend
+     */
+    public static void init(InputBackend inputBackend, long windowHandle) {
+        gamePads.init(inputBackend); // fails first if the polling rate is not supported
+        backend = inputBackend;
+        window.init(inputBackend, windowHandle);
         gamePads.scan();
     }
 
+    /**
+     * Update the main window input and the gamepads for the current frame.
+     * Other {@link WindowInput} instances are updated separately.
+     *
+     * @param dt delta time
+     */
     public static void update(DeltaTime dt) {
-        mouse.update(dt);
-        keyboard.update(dt);
-        gamePads.update(dt);
+        long start = metricsEnabled ? System.nanoTime() : 0L;
+        window.poll();
+        if (player != null && player.next(window.getKeyboard(), window.getMouse(), gamePads)) {
+            window.getEvents().clear(); // live input is ignored while replaying
+        } else {
+            if (player != null)
+                stopReplay();
+            window.updateDevices(dt);
+            gamePads.update(dt);
+        }
+        for (int i = 0; i < latches.size(); i++)
+            latches.get(i).accumulate(window.getKeyboard(), window.getMouse(), gamePads);
+        if (recorder != null)
+            recorder.record(dt.getElapsed(), window.getKeyboard(), window.getMouse(), gamePads);
+        if (history != null)
+            history.record(snapshots.getFrame(), window.getKeyboard(), window.getMouse(), gamePads);
+        if (metricsEnabled)
+            metrics.record(snapshots.getFrame(), start, window.getEvents(), gamePads);
+        snapshots.publish(window.getKeyboard(), window.getMouse(), gamePads);
+    }
+
+    /**
+     * Copy the input state of the latest frame into the given snapshot. May
+     * be called from any thread, the snapshot is always consistent and
+     * nothing is allocated or locked. Frames are only published after the
+     * first call, so the first call returns frame -1.
+     *
+     * @param snapshot Snapshot owned by the caller
+     * @return The given snapshot
+     */
+    public static InputSnapshot getSnapshot(InputSnapshot snapshot) {
+        snapshots.read(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Returns the number of {@link #update} calls so far. Must be called from
+     * the thread calling {@link #update}, other threads use
+     * {@link InputSnapshot#getFrame()}.
+     *
+     * @return Frame number
+     */
+    public static long getFrame() {
+        return snapshots.getFrame();
     }
     
+    /**
+     * Keep the input state of the last frames in an {@link InputHistory},
+     * filled by each {@link #update} call with the frame numbers of
+     * {@link #getFrame()}. Changing the capacity discards the history.
+     *
+     * @param frames Number of frames kept or zero to keep no history
+     * (default)
+     */
+    public static void setHistoryCapacity(int frames) {
+        if (frames < 0)
+            throw new IllegalArgumentException("frames < 0");
+        if (frames == getHistoryCapacity())
+            return;
+        history = frames > 0 ? new InputHistory(frames) : null;
+    }
+
+    public static int getHistoryCapacity() {
+        return history != null ? history.getCapacity() : 0;
+    }
+
+    /**
+     * Returns the history of the last frames.
+     *
+     * @return The history or {@code null} if no history is kept
+     */
+    public static InputHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Add a latch collecting the press and release edges of each
+     * {@link #update} call until a simulation tick consumes them.
+     *
+     * @param latch Latch
+     */
+    public static void addLatch(InputLatch latch) {
+        if (!latches.contains(latch))
+            latches.add(latch);
+    }
+
+    public static void removeLatch(InputLatch latch) {
+        latches.remove(latch);
+    }
+
+    /**
+     * Measure the input latency and the cost of {@link #update}, see
+     * {@link InputMetrics}.
+     *
+     * @param enabled True to measure, false to stop measuring (default)
+     */
+    public static void setMetricsEnabled(boolean enabled) {
+        metricsEnabled = enabled;
+    }
+
+    public static boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    /**
+     * Returns the latency and update time histograms. They keep their values
+     * when the metrics are disabled.
+     *
+     * @return Metrics of the main window and the gamepads
+     */
+    public static InputMetrics getMetrics() {
+        return metrics;
+    }
+
     public static void dispose() {
+        stopRecording();
+        stopReplay();
         gamePads.dispose();
     }
+
+    /**
+     * Start recording the input state of each frame into the given file. The
+     * recording can be replayed with {@link #startReplay(Path)}. A recording
+     * that is already running is stopped first.
+     *
+     * @param file Recording file, will be overwritten
+     * @throws IOException If the file cannot be created
+     */
+    public static void startRecording(Path file) throws IOException {
+        stopRecording();
+        recorder = new InputRecorder(file);
+    }
+
+    /**
+     * Stop the current recording, if any, and flush it to the file.
+     */
+    public static void stopRecording() {
+        if (recorder != null) {
+            try {
+                recorder.close();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            } finally {
+                recorder = null;
+            }
+        }
+    }
+
+    public static boolean isRecording() {
+        return recorder != null;
+    }
+
+    /**
+     * Replay a recording created with {@link #startRecording(Path)}. Starting
+     * with the next {@link #update} call each update applies the next
+     * recorded frame instead of the live input, until the end of the
+     * recording is reached or {@link #stopReplay()} is called.
+     *
+     * @param file Recording file
+     * @throws IOException If the file cannot be read or is not a recording
+     */
+    public static void startReplay(Path file) throws IOException {
+        stopReplay();
+        player = new InputPlayer(file);
+    }
+
+    /**
+     * Stop the current replay, if any. Live input is used again starting with
+     * the next {@link #update} call.
+     */
+    public static void stopReplay() {
+        if (player != null) {
+            try {
+                player.close();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            } finally {
+                player = null;
+                gamePads.removeReplayPads();
+            }
+        }
+    }
+
+    public static boolean isReplaying() {
+        return player != null;
+    }
+
+    /**
+     * Returns the delta time that was recorded for the current replay frame.
+     * Use it instead of the live delta time for deterministic replays.
+     *
+     * @return Recorded delta time or zero if there is no replay
+     */
+    public static float getReplayElapsed() {
+        return player != null ? player.getElapsed() : 0f;
+    }
     
+    /**
+     * Sample the gamepads on a dedicated thread at the given rate, e.g. 500
+     * or 1000 Hz, instead of once per frame. Button presses and releases
+     * between two frames are latched, so {@link GamePad#getButtonDown(int)}
+     * never misses a tap, and the axis range since the last frame is
+     * available through {@link GamePad#getAxeMin(int)},
+     * {@link GamePad#getAxeMax(int)} and {@link GamePad#getAxeAverage(int)}.
+     * Only backends that allow reading gamepads from another thread support
+     * it, see {@link InputBackend#supportsGamePadPolling()}. GLFW does not,
+     * its joystick functions must be called from the main thread.
+     *
+     * @param rateHz Sampling rate or zero to sample once per frame (default)
+     * @throws IllegalStateException If the rate is not zero and the backend
+     * does not support polling
+     */
+    public static void setGamePadPollingRate(int rateHz) {
+        gamePads.setPollingRate(rateHz);
+    }
+
+    public static int getGamePadPollingRate() {
+        return gamePads.getPollingRate();
+    }
+
+    public static InputBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Returns the input of the main window.
+     *
+     * @return Main window input
+     */
+    public static WindowInput getWindow() {
+        return window;
+    }
+
     public static Mouse getMouse() {
-        return mouse;
+        return window.getMouse();
     }
 
     public static Keyboard getKeyboard() {
-        return keyboard;
+        return window.getKeyboard();
+    }
+
+    /**
+     * Returns the ordered key and mouse button events of the current frame.
+     *
+     * @return Events of the current frame
+     */
+    public static InputEvents getEvents() {
+        return window.getEvents();
     }
     
     public static GamePad getGamePad() {
         return gamePads.getDefault();
     }
     
+    /**
+     * Returns the gamepad with the given joystick ID. The instance stays the
+     * same across reconnects, check {@link GamePad#isConnected()}.
+     *
+     * @param index Joystick ID
+     * @return The gamepad or {@code null} if there never was one at that ID
+     */
     public static GamePad getGamePad(int index) {
         return gamePads.get(index);
     }
     
-    public static Collection<GamePad> getGamePads() {
-        return getGamePads(false);
+    /**
+     * Returns the connected gamepads ordered by joystick ID. Connection
+     * changes are applied automatically during {@link #update}.
+     *
+     * @return Connected gamepads
+     */
+    public static List<GamePad> getGamePads() {
+        return gamePads.getAll();
     }
     
-    public static Collection<GamePad> getGamePads(boolean rescan) {
+    /**
+     * Returns the connected gamepads, optionally checking all joystick IDs
+     * first. Rescanning is not needed any more, connection changes are
+     * reported by the backend.
+     *
+     * @param rescan Check all joystick IDs for gamepads
+     * @return Connected gamepads
+     */
+    public static List<GamePad> getGamePads(boolean rescan) {
         if (rescan)
             gamePads.scan();
         return gamePads.getAll();
     }
+
+    /**
+     * Returns the raw joystick with the given joystick ID, e.g. a flight
+     * stick or a wheel without a gamepad mapping. The instance stays the same
+     * across reconnects, check {@link Joystick#isConnected()}.
+     *
+     * @param index Joystick ID
+     * @return The joystick or {@code null} if there never was one at that ID
+     */
+    public static Joystick getJoystick(int index) {
+        return gamePads.getJoystick(index);
+    }
+
+    /**
+     * Returns the connected joysticks ordered by joystick ID, gamepads
+     * included.
+     *
+     * @return Connected joysticks
+     */
+    public static List<Joystick> getJoysticks() {
+        return gamePads.getJoysticks();
+    }
+
+    /**
+     * Add a listener that is notified during {@link #update} when a gamepad
+     * connects or disconnects.
+     *
+     * @param listener Listener
+     */
+    public static void addGamePadListener(GamePadListener listener) {
+        gamePads.addListener(listener);
+    }
+
+    public static void removeGamePadListener(GamePadListener listener) {
+        gamePads.removeListener(listener);
+    }
 }
@@ -0,0 +1,256 @@
+package com.gnarfodolfus.pixel.input;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Source of raw input events and gamepad states. {@link GlfwInputBackend} is
+ * used by default, {@link SyntheticInputBackend} runs without a window.
+ * Listeners are always called from the thread that calls {@link #poll()},
+ * which is the thread calling {@link Input#update}. Listener arguments follow
+ * the GLFW conventions, e.g. actions are {@link GLFW#GLFW_PRESS},
+ * {@link GLFW#GLFW_RELEASE} or {@link GLFW#GLFW_REPEAT}.
+ */
+public interface InputBackend {
+
+    /**
+     * Deliver all pending events to the listeners. Called at the start of
+     * each {@link Input#update}.
+     */
+    void poll();
+
+    /**
+     * Set the key listener of the window, replacing the previous one.
+     *
+     * @param window Window handle
+     * @param listener Listener or {@code null} to remove it
+     */
+    void setKeyListener(long window, KeyListener listener);
+
+    /**
+     * Set the unicode text listener of the window, replacing the previous
+     * one.
+     *
+     * @param window Window handle
+     * @param listener Listener or {@code null} to remove it
+     */
+    void setCharListener(long window, CharListener listener);
+
+    /**
+     * Set the cursor position listener of the window, replacing the previous
+     * one.
+     *
+     * @param window Window handle
+     * @param listener Listener or {@code null} to remove it
+     */
+    void setCursorPosListener(long window, CursorPosListener listener);
+
+    /**
+     * Set the mouse button listener of the window, replacing the previous
+     * one.
+     *
+     * @param window Window handle
+     * @param listener Listener or {@code null} to remove it
+     */
+    void setMouseButtonListener(long window, MouseButtonListener listener);
+
+    /**
+     * Set the scroll listener of the window, replacing the previous one.
+     *
+     * @param window Window handle
+     * @param listener Listener or {@code null} to remove it
+     */
+    void setScrollListener(long window, ScrollListener listener);
+
+    /**
+     * Hide the cursor and lock it to the window. The cursor position is no
+     * longer limited to the window, which is what camera controls need.
+     *
+     * @param window Window handle
+     * @param disabled Disable the cursor
+     */
+    void setCursorDisabled(long window, boolean disabled);
+
+    /**
+     * Enable or disable raw (unscaled and unaccelerated) mouse motion. Raw
+     * motion only applies while the cursor is disabled.
+     *
+     * @param window Window handle
+     * @param enabled Enable raw motion
+     * @return True if raw motion is supported, false otherwise.
+     */
+    boolean setRawMouseMotion(long window, boolean enabled);
+
+    /**
+     * Set the focus listener of a window, replacing the previous one.
+     *
+     * @param window Window handle
+     * @param listener Listener or {@code null} to remove it
+     */
+    void setFocusListener(long window, FocusListener listener);
+
+    /**
+     * Returns the layout specific name of a printable key, e.g. "q" for
+     * {@link GLFW#GLFW_KEY_Q} on a QWERTY layout and "a" on an AZERTY layout.
+     *
+     * @param key Key according to GLFW or {@link GLFW#GLFW_KEY_UNKNOWN} to
+     * use the scancode
+     * @param scanCode Scancode, only used for {@link GLFW#GLFW_KEY_UNKNOWN}
+     * @return Key name or {@code null} if the key is not printable
+     */
+    String getKeyName(int key, int scanCode);
+
+    /**
+     * Returns the platform specific scancode of a key.
+     *
+     * @param key Key according to GLFW
+     * @return Scancode or -1 if the key does not exist on this platform
+     */
+    int getKeyScancode(int key);
+
+    /**
+     * Set the listener for joystick connection changes, replacing the
+     * previous one. Unlike the other listeners this one is global.
+     *
+     * @param listener Listener or {@code null} to remove it
+     */
+    void setJoystickListener(JoystickListener listener);
+
+    /**
+     * Checks whether a gamepad is connected at the given joystick ID.
+     *
+     * @param jid Joystick ID according to GLFW, e.g.
+     * {@link GLFW#GLFW_JOYSTICK_1}
+     * @return True if there is a gamepad, false otherwise.
+     */
+    boolean isGamePad(int jid);
+
+    /**
+     * Returns the name of the gamepad.
+     *
+     * @param jid Joystick ID according to GLFW
+     * @return Gamepad name or {@code null} if there is no gamepad
+     */
+    String getGamePadName(int jid);
+
+    /**
+     * Reads the current gamepad state into the given arrays.
+     *
+     * @param jid Joystick ID according to GLFW
+     * @param buttons Button states, at least
+     * {@link GLFW#GLFW_GAMEPAD_BUTTON_LAST} + 1 elements
+     * @param axes Axis values, at least {@link GLFW#GLFW_GAMEPAD_AXIS_LAST} +
+     * 1 elements
+     * @return True if the gamepad is connected, false otherwise.
+     */
+    boolean getGamePadState(int jid, byte[] buttons, float[] axes);
+
+    /**
+     * Checks whether {@link #getGamePadState} may be called from another
+     * thread while the thread calling {@link #poll()} uses the backend, which
+     * is required to {@link Input#setGamePadPollingRate(int) poll} gamepads
+     * at a fixed rate.
+     *
+     * @return True if gamepads may be read from another thread, false
+     * otherwise.
+     */
+    default boolean supportsGamePadPolling() {
+        return false;
+    }
+
+    /**
+     * Checks whether a joystick is connected at the given joystick ID. Every
+     * gamepad is a joystick as well, but not every joystick is a gamepad.
+     *
+     * @param jid Joystick ID according to GLFW
+     * @return True if there is a joystick, false otherwise.
+     */
+    boolean isJoystick(int jid);
+
+    /**
+     * Returns the name of the joystick.
+     *
+     * @param jid Joystick ID according to GLFW
+     * @return Joystick name or {@code null} if there is no joystick
+     */
+    String getJoystickName(int jid);
+
+    /**
+     * Reads the current button states of the joystick, one byte per button
+     * with {@link GLFW#GLFW_PRESS} or {@link GLFW#GLFW_RELEASE}. The returned
+     * buffer is a view of the backend's state, it is updated in place by each
+     * call and is returned again by later calls until the joystick
+     * disconnects. The buffer must not be modified.
+     *
+     * @param jid Joystick ID according to GLFW
+     * @return Button states or {@code null} if there is no joystick
+     */
+    ByteBuffer getJoystickButtons(int jid);
+
+    /**
+     * Reads the current axis values of the joystick in [-1, 1], see
+     * {@link #getJoystickButtons(int)} for the lifetime of the buffer.
+     *
+     * @param jid Joystick ID according to GLFW
+     * @return Axis values or {@code null} if there is no joystick
+     */
+    FloatBuffer getJoystickAxes(int jid);
+
+    /**
+     * Reads the current hat states of the joystick, one byte per hat with
+     * the {@link GLFW#GLFW_HAT_UP} etc. bits, see
+     * {@link #getJoystickButtons(int)} for the lifetime of the buffer.
+     *
+     * @param jid Joystick ID according to GLFW
+     * @return Hat states or {@code null} if there is no joystick
+     */
+    ByteBuffer getJoystickHats(int jid);
+
+    @FunctionalInterface
+    interface KeyListener {
+
+        void onKey(int key, int scanCode, int action, int mods);
+    }
+
+    @FunctionalInterface
+    interface CharListener {
+
+        void onChar(int codepoint);
+    }
+
+    @FunctionalInterface
+    interface CursorPosListener {
+
+        void onCursorPos(double x, double y);
+    }
+
+    @FunctionalInterface
+    interface MouseButtonListener {
+
+        void onMouseButton(int button, int action, int mods);
+    }
+
+    @FunctionalInterface
+    interface ScrollListener {
+
+        void onScroll(double xoffset, double yoffset);
+    }
+
+    @FunctionalInterface
+    interface FocusListener {
+
+        void onFocus(boolean focused);
+    }
+
+    @FunctionalInterface
+    interface JoystickListener {
+
+        /**
+         * @param jid Joystick ID
+         * @param event {@link GLFW#GLFW_CONNECTED} or
+         * {@link GLFW#GLFW_DISCONNECTED}
+         */
+        void onJoystick(int jid, int event);
+    }
+}
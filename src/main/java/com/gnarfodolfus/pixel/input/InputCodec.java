@@ -0,0 +1,365 @@
+package com.gnarfodolfus.pixel.input;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compact wire format of {@link InputSnapshot}s for networked games. A frame
+ * is encoded against a baseline, usually the last frame the receiver
+ * acknowledged, and only the differences are written: keyboard words XOR'ed
+ * with the baseline, button masks XOR'ed as varints and gamepad axes
+ * quantized to a configurable number of bits. An idle frame takes a few
+ * bytes. Encoding and decoding do not allocate.
+ *
+ * <pre>
+ * InputCodec codec = new InputCodec(8);
+ * codec.encode(Input.getSnapshot(local), acked, buffer);
+ * ...
+ * InputSnapshot baseline = history.get(InputCodec.getBaselineFrame(buffer));
+ * codec.decode(buffer, baseline, remote);
+ * </pre>
+ *
+ * Layout: frame number and the distance to the baseline frame as varlongs
+ * (zero without a baseline), a flag byte and the sections announced by the
+ * flags in this order:
+ * <ul>
+ * <li>{@link #KEYS}: a word mask byte and the changed key words XOR'ed with
+ * the baseline.</li>
+ * <li>{@link #KEY_EDGES}: down and up keys, each as word mask and words. Only
+ * written if they can't be derived from the key change.</li>
+ * <li>{@link #BUTTONS}: mouse buttons XOR'ed with the baseline as
+ * varint.</li>
+ * <li>{@link #BUTTON_EDGES}: down and up mouse buttons as varints, only
+ * written if they can't be derived from the button change.</li>
+ * <li>{@link #POSITION}, {@link #MOTION}, {@link #SCROLL}: two floats.</li>
+ * <li>{@link #PADS}: connected pads mask as varint, the number of changed
+ * pads and per pad the ID, a flag byte, a mask byte of changed axes, the
+ * XOR'ed buttons and edges as varints and the changed quantized axes as
+ * zig-zag varints relative to the baseline.</li>
+ * </ul>
+ */
+public final class InputCodec {
+
+    static final int KEYS = 1;
+    static final int KEY_EDGES = 1 << 1;
+    static final int BUTTONS = 1 << 2;
+    static final int BUTTON_EDGES = 1 << 3;
+    static final int POSITION = 1 << 4;
+    static final int MOTION = 1 << 5;
+    static final int SCROLL = 1 << 6;
+    static final int PADS = 1 << 7;
+
+    static final int PAD_BUTTONS = 1;
+    static final int PAD_EDGES = 1 << 1;
+
+    private static final int AXES = InputSnapshot.AXES;
+
+    private final int axisBits;
+    private final float axisScale;
+    private final InputSnapshot empty = new InputSnapshot();
+
+    /**
+     * Creates a codec.
+     *
+     * @param axisBits Bits per gamepad axis value including the sign, 2 to 16
+     */
+    public InputCodec(int axisBits) {
+        if (axisBits < 2 || axisBits > 16)
+            throw new IllegalArgumentException("axisBits must be in [2, 16]");
+        this.axisBits = axisBits;
+        this.axisScale = (1 << (axisBits - 1)) - 1;
+    }
+
+    public int getAxisBits() {
+        return axisBits;
+    }
+
+    /**
+     * Write the frame as the difference to the baseline.
+     *
+     * @param frame Frame to encode
+     * @param baseline Older frame known to the receiver or {@code null} to
+     * encode the complete frame
+     * @param out Buffer receiving the encoded frame
+     */
+    public void encode(InputSnapshot frame, InputSnapshot baseline, ByteBuffer out) {
+        if (baseline != null && baseline.frame >= frame.frame)
+            throw new IllegalArgumentException("baseline must be older than frame");
+        InputSnapshot base = baseline != null ? baseline : empty;
+        putVarLong(out, frame.frame);
+        putVarLong(out, baseline != null ? frame.frame - baseline.frame : 0L);
+        int flagsPosition = out.position();
+        out.put((byte) 0);
+        int flags = 0;
+
+        if (putWords(out, frame.keys, base.keys))
+            flags |= KEYS;
+        if (!derived(frame.keysDown, frame.keys, base.keys) || !derived(frame.keysUp, base.keys, frame.keys)) {
+            putWords(out, frame.keysDown, null);
+            putWords(out, frame.keysUp, null);
+            flags |= KEY_EDGES;
+        }
+
+        int buttons = frame.mouseButtons;
+        int lastButtons = base.mouseButtons;
+        if (buttons != lastButtons) {
+            InputRecorder.putVarInt(out, buttons ^ lastButtons);
+            flags |= BUTTONS;
+        }
+        if (frame.mouseButtonsDown != (buttons & ~lastButtons) || frame.mouseButtonsUp != (lastButtons & ~buttons)) {
+            InputRecorder.putVarInt(out, frame.mouseButtonsDown);
+            InputRecorder.putVarInt(out, frame.mouseButtonsUp);
+            flags |= BUTTON_EDGES;
+        }
+        if ((float) frame.mouseX != (float) base.mouseX || (float) frame.mouseY != (float) base.mouseY) {
+            out.putFloat((float) frame.mouseX).putFloat((float) frame.mouseY);
+            flags |= POSITION;
+        }
+        if (frame.movementX != 0.0 || frame.movementY != 0.0) {
+            out.putFloat((float) frame.movementX).putFloat((float) frame.movementY);
+            flags |= MOTION;
+        }
+        if (frame.scrollX != 0f || frame.scrollY != 0f) {
+            out.putFloat(frame.scrollX).putFloat(frame.scrollY);
+            flags |= SCROLL;
+        }
+        if (putPads(out, frame, base))
+            flags |= PADS;
+        out.put(flagsPosition, (byte) flags);
+    }
+
+    /**
+     * Returns the baseline frame the next frame in the buffer was encoded
+     * against, without consuming anything.
+     *
+     * @param in Buffer positioned at an encoded frame
+     * @return Baseline frame number or -1 if the frame was encoded without a
+     * baseline
+     */
+    public static long getBaselineFrame(ByteBuffer in) {
+        int position = in.position();
+        try {
+            long frame = getVarLong(in);
+            long distance = getVarLong(in);
+            return distance != 0L ? frame - distance : -1L;
+        } finally {
+            in.position(position);
+        }
+    }
+
+    /**
+     * Read a frame encoded by {@link #encode}.
+     *
+     * @param in Buffer positioned at an encoded frame
+     * @param baseline The baseline used for encoding, {@code null} if there
+     * was none
+     * @param out Snapshot receiving the frame, may be the baseline itself
+     */
+    public void decode(ByteBuffer in, InputSnapshot baseline, InputSnapshot out) {
+        long frame = getVarLong(in);
+        long distance = getVarLong(in);
+        if (distance != 0L && (baseline == null || baseline.frame != frame - distance))
+            throw new IllegalStateException("Frame " + frame + " was encoded against frame " + (frame - distance));
+        int flags = in.get() & 0xff;
+        if (distance == 0L)
+            out.copy(empty);
+        else if (out != baseline)
+            out.copy(baseline);
+        out.frame = frame;
+
+        boolean keyEdges = (flags & KEY_EDGES) != 0;
+        out.keysDown.clear();
+        out.keysUp.clear();
+        if ((flags & KEYS) != 0) {
+            int mask = in.get() & 0xff;
+            for (int i = 0; i < out.keys.getWordCount(); i++) {
+                if ((mask & (1 << i)) == 0)
+                    continue;
+                long last = out.keys.getWord(i);
+                long word = last ^ in.getLong();
+                out.keys.setWord(i, word);
+                if (!keyEdges) {
+                    out.keysDown.setWord(i, word & ~last);
+                    out.keysUp.setWord(i, last & ~word);
+                }
+            }
+        }
+        if (keyEdges) {
+            getWords(in, out.keysDown);
+            getWords(in, out.keysUp);
+        }
+
+        int lastButtons = out.mouseButtons;
+        if ((flags & BUTTONS) != 0)
+            out.mouseButtons = lastButtons ^ InputRecorder.getVarInt(in);
+        int buttons = out.mouseButtons;
+        if ((flags & BUTTON_EDGES) != 0) {
+            out.mouseButtonsDown = InputRecorder.getVarInt(in);
+            out.mouseButtonsUp = InputRecorder.getVarInt(in);
+        } else {
+            out.mouseButtonsDown = buttons & ~lastButtons;
+            out.mouseButtonsUp = lastButtons & ~buttons;
+        }
+        if ((flags & POSITION) != 0) {
+            out.mouseX = in.getFloat();
+            out.mouseY = in.getFloat();
+        }
+        if ((flags & MOTION) != 0) {
+            out.movementX = in.getFloat();
+            out.movementY = in.getFloat();
+        } else {
+            out.movementX = 0.0;
+            out.movementY = 0.0;
+        }
+        if ((flags & SCROLL) != 0) {
+            out.scrollX = in.getFloat();
+            out.scrollY = in.getFloat();
+        } else {
+            out.scrollX = 0f;
+            out.scrollY = 0f;
+        }
+        getPads(in, out, (flags & PADS) != 0);
+    }
+
+    /**
+     * Returns true if the edges equal {@code now & ~before}.
+     */
+    private static boolean derived(FixedBitSet edges, FixedBitSet now, FixedBitSet before) {
+        for (int i = 0; i < edges.getWordCount(); i++)
+            if (edges.getWord(i) != (now.getWord(i) & ~before.getWord(i)))
+                return false;
+        return true;
+    }
+
+    private boolean putPads(ByteBuffer out, InputSnapshot frame, InputSnapshot base) {
+        int start = out.position();
+        InputRecorder.putVarInt(out, frame.padsConnected);
+        int countPosition = out.position();
+        out.put((byte) 0);
+        int count = 0;
+        for (int jid = 0; jid < InputSnapshot.PADS; jid++) {
+            int buttons = frame.padButtons[jid];
+            int last = base.padButtons[jid];
+            boolean edges = frame.padButtonsDown[jid] != (buttons & ~last) || frame.padButtonsUp[jid] != (last & ~buttons);
+            int offset = jid * AXES;
+            int axesMask = 0;
+            for (int i = 0; i < AXES; i++)
+                if (quantize(frame.padAxes[offset + i]) != quantize(base.padAxes[offset + i]))
+                    axesMask |= 1 << i;
+            if (buttons == last && !edges && axesMask == 0)
+                continue;
+
+            out.put((byte) jid);
+            out.put((byte) ((buttons != last ? PAD_BUTTONS : 0) | (edges ? PAD_EDGES : 0)));
+            out.put((byte) axesMask);
+            if (buttons != last)
+                InputRecorder.putVarInt(out, buttons ^ last);
+            if (edges) {
+                InputRecorder.putVarInt(out, frame.padButtonsDown[jid]);
+                InputRecorder.putVarInt(out, frame.padButtonsUp[jid]);
+            }
+            for (int i = 0; i < AXES; i++) {
+                if ((axesMask & (1 << i)) != 0) {
+                    int delta = quantize(frame.padAxes[offset + i]) - quantize(base.padAxes[offset + i]);
+                    InputRecorder.putVarInt(out, (delta << 1) ^ (delta >> 31));
+                }
+            }
+            count++;
+        }
+        if (count == 0 && frame.padsConnected == base.padsConnected) {
+            out.position(start);
+            return false;
+        }
+        out.put(countPosition, (byte) count);
+        return true;
+    }
+
+    private void getPads(ByteBuffer in, InputSnapshot out, boolean present) {
+        // Without changes the edges are empty, with changes they are
+        // overwritten below
+        for (int jid = 0; jid < InputSnapshot.PADS; jid++) {
+            out.padButtonsDown[jid] = 0;
+            out.padButtonsUp[jid] = 0;
+        }
+        if (!present)
+            return;
+        out.padsConnected = InputRecorder.getVarInt(in);
+        int count = in.get() & 0xff;
+        for (int n = 0; n < count; n++) {
+            int jid = in.get() & 0xff;
+            if (jid >= InputSnapshot.PADS)
+                throw new IllegalStateException("Invalid pad: " + jid);
+            int flags = in.get();
+            int axesMask = in.get() & 0xff;
+            int last = out.padButtons[jid];
+            if ((flags & PAD_BUTTONS) != 0)
+                out.padButtons[jid] = last ^ InputRecorder.getVarInt(in);
+            int buttons = out.padButtons[jid];
+            if ((flags & PAD_EDGES) != 0) {
+                out.padButtonsDown[jid] = InputRecorder.getVarInt(in);
+                out.padButtonsUp[jid] = InputRecorder.getVarInt(in);
+            } else {
+                out.padButtonsDown[jid] = buttons & ~last;
+                out.padButtonsUp[jid] = last & ~buttons;
+            }
+            int offset = jid * AXES;
+            for (int i = 0; i < AXES; i++) {
+                if ((axesMask & (1 << i)) != 0) {
+                    int zigzag = InputRecorder.getVarInt(in);
+                    int q = quantize(out.padAxes[offset + i]) + ((zigzag >>> 1) ^ -(zigzag & 1));
+                    out.padAxes[offset + i] = q / axisScale;
+                }
+            }
+        }
+    }
+
+    private int quantize(float value) {
+        return Math.round(Math.max(-1f, Math.min(1f, value)) * axisScale);
+    }
+
+    /**
+     * Write the non-zero words of the bitset, XOR'ed with the baseline if
+     * there is one. Returns false and writes nothing if all words are zero.
+     */
+    private static boolean putWords(ByteBuffer out, FixedBitSet bits, FixedBitSet base) {
+        int mask = 0;
+        int count = bits.getWordCount();
+        for (int i = 0; i < count; i++) {
+            long word = base != null ? bits.getWord(i) ^ base.getWord(i) : bits.getWord(i);
+            if (word != 0)
+                mask |= 1 << i;
+        }
+        if (mask == 0 && base != null)
+            return false;
+        out.put((byte) mask);
+        for (int i = 0; i < count; i++)
+            if ((mask & (1 << i)) != 0)
+                out.putLong(base != null ? bits.getWord(i) ^ base.getWord(i) : bits.getWord(i));
+        return true;
+    }
+
+    private static void getWords(ByteBuffer in, FixedBitSet bits) {
+        int mask = in.get() & 0xff;
+        for (int i = 0; i < bits.getWordCount(); i++)
+            if ((mask & (1 << i)) != 0)
+                bits.setWord(i, in.getLong());
+    }
+
+    static void putVarLong(ByteBuffer buf, long value) {
+        while ((value & ~0x7fL) != 0) {
+            buf.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buf.put((byte) value);
+    }
+
+    static long getVarLong(ByteBuffer buf) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = buf.get();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IllegalStateException("Malformed varlong");
+    }
+}
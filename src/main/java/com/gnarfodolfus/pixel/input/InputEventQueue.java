@@ -0,0 +1,73 @@
+package com.gnarfodolfus.pixel.input;
+
+/**
+ * Preallocated single producer / single consumer ring buffer of primitive
+ * input events. The GLFW callbacks are the producer, {@link Input#update} is
+ * the consumer. Events are stored in flat primitive arrays, so neither side
+ * allocates. If the ring is full new events are dropped and counted, the
+ * device state bits are still correct in that case, only the ordering and
+ * timestamps of the dropped events are lost.
+ */
+final class InputEventQueue {
+
+    private static final int FIELDS = 5; // device, code, scancode, action, mods
+
+    private final int mask;
+    private final int[] data;
+    private final long[] times;
+
+    private volatile long head; // next slot to read, written by the consumer
+    private volatile long tail; // next slot to write, written by the producer
+
+    private long dropped;
+
+    InputEventQueue(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("capacity must be a power of two");
+        this.mask = capacity - 1;
+        this.data = new int[capacity * FIELDS];
+        this.times = new long[capacity];
+    }
+
+    /**
+     * Append an event. Must only be called by the producer thread.
+     *
+     * @return True if the event was queued, false if the queue was full
+     */
+    boolean offer(int device, int code, int scancode, int action, int mods, long time) {
+        long t = tail;
+        if (t - head > mask) {
+            dropped++;
+            return false;
+        }
+        int slot = (int) t & mask;
+        int offset = slot * FIELDS;
+        data[offset] = device;
+        data[offset + 1] = code;
+        data[offset + 2] = scancode;
+        data[offset + 3] = action;
+        data[offset + 4] = mods;
+        times[slot] = time;
+        tail = t + 1; // publish
+        return true;
+    }
+
+    /**
+     * Move all queued events into the frame event view, replacing its previous
+     * content. Must only be called by the consumer thread.
+     *
+     * @param dst Frame event view
+     */
+    void drainTo(InputEvents dst) {
+        dst.clear();
+        long h = head;
+        long t = tail;
+        for (; h < t; h++) {
+            int slot = (int) h & mask;
+            int offset = slot * FIELDS;
+            dst.add(data[offset], data[offset + 1], data[offset + 2], data[offset + 3], data[offset + 4], times[slot]);
+        }
+        head = h;
+        dst.setDropped(dropped);
+    }
+}
@@ -0,0 +1,148 @@
+package com.gnarfodolfus.pixel.input;
+
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Ordered view of all key and button presses and releases received during
+ * the last frame. Key repeats are not events, they are generated by the
+ * keyboard, see {@link Keyboard#getKeyRepeat(int)}. The content is replaced
+ * on each {@link Input#update} call. Events are accessed by index, so walking
+ * them does not allocate:
+ *
+ * <pre>
+ * InputEvents events = Input.getEvents();
+ * for (int i = 0; i &lt; events.size(); i++) {
+ *     if (events.getDevice(i) == InputEvents.DEVICE_KEYBOARD) ...
+ * }
+ * </pre>
+ */
+public final class InputEvents {
+
+    public static final int DEVICE_KEYBOARD = 0;
+    public static final int DEVICE_MOUSE = 1;
+
+    private final int[] devices;
+    private final int[] codes;
+    private final int[] scancodes;
+    private final int[] actions;
+    private final int[] mods;
+    private final long[] times;
+
+    private int size;
+    private long dropped;
+
+    InputEvents(int capacity) {
+        this.devices = new int[capacity];
+        this.codes = new int[capacity];
+        this.scancodes = new int[capacity];
+        this.actions = new int[capacity];
+        this.mods = new int[capacity];
+        this.times = new long[capacity];
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    void add(int device, int code, int scancode, int action, int modifiers, long time) {
+        devices[size] = device;
+        codes[size] = code;
+        scancodes[size] = scancode;
+        actions[size] = action;
+        mods[size] = modifiers;
+        times[size] = time;
+        size++;
+    }
+
+    void setDropped(long dropped) {
+        this.dropped = dropped;
+    }
+
+    /**
+     * Returns the number of events received during the last frame.
+     *
+     * @return Number of events
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the device of the event, e.g. {@link #DEVICE_KEYBOARD}.
+     *
+     * @param index Event index
+     * @return Device ID
+     */
+    public int getDevice(int index) {
+        return devices[index];
+    }
+
+    /**
+     * Returns the key or button of the event according to GLFW, e.g.
+     * {@link GLFW#GLFW_KEY_A} or {@link GLFW#GLFW_MOUSE_BUTTON_1}.
+     *
+     * @param index Event index
+     * @return Key or button ID
+     */
+    public int getCode(int index) {
+        return codes[index];
+    }
+
+    /**
+     * Returns the platform specific scancode of a key event, see
+     * {@link Keyboard#getScancode(int)}. Keys unknown to GLFW have a
+     * scancode but the key {@link GLFW#GLFW_KEY_UNKNOWN}.
+     *
+     * @param index Event index
+     * @return Scancode or -1 for mouse events
+     */
+    public int getScancode(int index) {
+        return scancodes[index];
+    }
+
+    /**
+     * Returns the action of the event according to GLFW, either
+     * {@link GLFW#GLFW_PRESS} or {@link GLFW#GLFW_RELEASE}. Key repeats of
+     * the operating system are not reported, see
+     * {@link Keyboard#getKeyRepeat(int)}.
+     *
+     * @param index Event index
+     * @return Action ID
+     */
+    public int getAction(int index) {
+        return actions[index];
+    }
+
+    /**
+     * Returns the modifier bits of the event according to GLFW, e.g.
+     * {@link GLFW#GLFW_MOD_SHIFT}.
+     *
+     * @param index Event index
+     * @return Modifier bits
+     */
+    public int getMods(int index) {
+        return mods[index];
+    }
+
+    /**
+     * Returns the time the event was received by the callback as returned by
+     * {@link System#nanoTime()}.
+     *
+     * @param index Event index
+     * @return Event time in nanoseconds
+     */
+    public long getTime(int index) {
+        return times[index];
+    }
+
+    /**
+     * Returns the total number of events that were dropped because the event
+     * queue was full. The key and button states are still correct in that
+     * case, but taps within a single frame may be lost.
+     *
+     * @return Number of dropped events since startup
+     */
+    public long getDropped() {
+        return dropped;
+    }
+}
@@ -0,0 +1,203 @@
+package com.gnarfodolfus.pixel.input;
+
+/**
+ * Ring of the input state of the last frames for rollback and input
+ * buffering, e.g. to accept a jump pressed up to 6 frames before landing:
+ *
+ * <pre>
+ * Input.setHistoryCapacity(64);
+ * ...
+ * InputHistory history = Input.getHistory();
+ * if (history.isKeyPressed(history.getLatestFrame(), 6, GLFW.GLFW_KEY_SPACE)) ...
+ * </pre>
+ *
+ * All frames are preallocated {@link InputSnapshot}s, recording a frame
+ * copies into the slot of the frame number and never allocates. Window
+ * queries OR the edge bits of the frames word by word.
+ */
+public final class InputHistory {
+
+    private final InputSnapshot[] frames;
+    private final FixedBitSet pressed = new FixedBitSet(Keyboard.KEYBOARD_SIZE);
+    private long latest = -1;
+
+    /**
+     * Creates a history.
+     *
+     * @param capacity Number of frames kept
+     */
+    public InputHistory(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity <= 0");
+        frames = new InputSnapshot[capacity];
+        for (int i = 0; i < capacity; i++)
+            frames[i] = new InputSnapshot();
+    }
+
+    void record(long frame, Keyboard keyboard, Mouse mouse, GamePads pads) {
+        slot(frame).capture(frame, keyboard, mouse, pads);
+        if (frame > latest)
+            latest = frame;
+    }
+
+    /**
+     * Store a frame, replacing the frame with the same number. Used to
+     * overwrite predicted input with the corrected input of a remote player.
+     * The following frames are not changed, their edges still refer to the
+     * replaced state.
+     *
+     * @param frame Frame to store, its frame number selects the slot
+     * @throws IllegalArgumentException If the frame is older than the
+     * history
+     */
+    public void set(InputSnapshot frame) {
+        if (frame.frame < 0 || frame.frame <= latest - frames.length)
+            throw new IllegalArgumentException("Frame " + frame.frame + " is not in the history");
+        slot(frame.frame).copy(frame);
+        if (frame.frame > latest)
+            latest = frame.frame;
+    }
+
+    /**
+     * Get a frame of the history. The returned snapshot is owned by the
+     * history and overwritten when the ring wraps around.
+     *
+     * @param frame Frame number
+     * @return The frame or {@code null} if it is not in the history
+     */
+    public InputSnapshot get(long frame) {
+        if (frame < 0)
+            return null;
+        InputSnapshot snapshot = slot(frame);
+        return snapshot.frame == frame ? snapshot : null;
+    }
+
+    /**
+     * Checks whether the frame is in the history.
+     *
+     * @param frame Frame number
+     * @return True if the frame is in the history, false otherwise.
+     */
+    public boolean contains(long frame) {
+        return get(frame) != null;
+    }
+
+    /**
+     * Returns the number of the newest frame in the history.
+     *
+     * @return Frame number or -1 if the history is empty
+     */
+    public long getLatestFrame() {
+        return latest;
+    }
+
+    public int getCapacity() {
+        return frames.length;
+    }
+
+    /**
+     * Remove all frames.
+     */
+    public void clear() {
+        for (InputSnapshot snapshot : frames)
+            snapshot.frame = -1;
+        latest = -1;
+    }
+
+    /**
+     * Checks whether the key went down in the window of frames ending with
+     * the given frame. Frames missing in the history are skipped.
+     *
+     * @param frame Last frame of the window
+     * @param count Number of frames in the window
+     * @param key GLFW key code
+     * @return True if the key went down in the window, false otherwise.
+     */
+    public boolean isKeyPressed(long frame, int count, int key) {
+        checkWindow(count);
+        for (long f = frame - count + 1; f <= frame; f++) {
+            InputSnapshot snapshot = get(f);
+            if (snapshot != null && snapshot.keysDown.get(key))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Collect all keys that went down in the window of frames ending with the
+     * given frame. The key bits of the frames are combined word by word, the
+     * key codes are written like {@link Keyboard#getKeysDown(int[])}.
+     *
+     * @param frame Last frame of the window
+     * @param count Number of frames in the window
+     * @param dst Array receiving the key codes
+     * @return Number of keys that went down, may be larger than the array
+     * length
+     */
+    public int getKeysPressed(long frame, int count, int[] dst) {
+        checkWindow(count);
+        pressed.clear();
+        for (long f = frame - count + 1; f <= frame; f++) {
+            InputSnapshot snapshot = get(f);
+            if (snapshot != null)
+                pressed.or(snapshot.keysDown);
+        }
+        return pressed.getSetBitsTotal(dst);
+    }
+
+    /**
+     * Returns the mouse buttons that went down in the window of frames ending
+     * with the given frame.
+     *
+     * @param frame Last frame of the window
+     * @param count Number of frames in the window
+     * @return Bit mask of the buttons
+     */
+    public int getMouseButtonsPressed(long frame, int count) {
+        checkWindow(count);
+        int buttons = 0;
+        for (long f = frame - count + 1; f <= frame; f++) {
+            InputSnapshot snapshot = get(f);
+            if (snapshot != null)
+                buttons |= snapshot.mouseButtonsDown;
+        }
+        return buttons;
+    }
+
+    public boolean isMouseButtonPressed(long frame, int count, int button) {
+        return (getMouseButtonsPressed(frame, count) & (1 << button)) != 0;
+    }
+
+    /**
+     * Returns the buttons of a gamepad that went down in the window of frames
+     * ending with the given frame.
+     *
+     * @param frame Last frame of the window
+     * @param count Number of frames in the window
+     * @param jid Joystick ID
+     * @return Bit mask of the buttons
+     */
+    public int getGamePadButtonsPressed(long frame, int count, int jid) {
+        checkWindow(count);
+        int buttons = 0;
+        for (long f = frame - count + 1; f <= frame; f++) {
+            InputSnapshot snapshot = get(f);
+            if (snapshot != null)
+                buttons |= snapshot.padButtonsDown[jid];
+        }
+        return buttons;
+    }
+
+    public boolean isGamePadButtonPressed(long frame, int count, int jid, int button) {
+        return (getGamePadButtonsPressed(frame, count, jid) & (1 << button)) != 0;
+    }
+
+    private void checkWindow(int count) {
+        if (count <= 0 || count > frames.length)
+            throw new IllegalArgumentException("count must be in [1, " + frames.length + "]");
+    }
+
+    private InputSnapshot slot(long frame) {
+        return frames[(int) (frame % frames.length)];
+    }
+}
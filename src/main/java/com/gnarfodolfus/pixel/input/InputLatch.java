@@ -0,0 +1,162 @@
+package com.gnarfodolfus.pixel.input;
+
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Press and release edges for a fixed timestep simulation. The edges of
+ * {@link Keyboard#getKeyDown(int)} and friends last exactly one
+ * {@link Input#update} call, so a simulation running twice in a frame sees
+ * a press twice and a simulation not running in a frame misses it. A latch
+ * collects the edges of all updates until the next tick consumes them:
+ *
+ * <pre>
+ * InputLatch latch = new InputLatch();
+ * Input.addLatch(latch);
+ * ...
+ * while (accumulator &gt;= STEP) {
+ *     latch.consume();
+ *     if (latch.getKeyDown(GLFW.GLFW_KEY_SPACE)) jump();
+ *     accumulator -= STEP;
+ * }
+ * </pre>
+ *
+ * Each edge is reported by exactly one tick. Held state is not latched, it
+ * is read from the devices as usual. Every consumer, e.g. simulation and UI
+ * at different rates, uses its own latch.
+ */
+public final class InputLatch {
+
+    private static final int PADS = GLFW.GLFW_JOYSTICK_LAST + 1;
+
+    private FixedBitSet keysDown = new FixedBitSet(Keyboard.KEYBOARD_SIZE);
+    private FixedBitSet keysUp = new FixedBitSet(Keyboard.KEYBOARD_SIZE);
+    private FixedBitSet pendingKeysDown = new FixedBitSet(Keyboard.KEYBOARD_SIZE);
+    private FixedBitSet pendingKeysUp = new FixedBitSet(Keyboard.KEYBOARD_SIZE);
+
+    private int mouseButtonsDown;
+    private int mouseButtonsUp;
+    private int pendingMouseButtonsDown;
+    private int pendingMouseButtonsUp;
+
+    private int[] padButtonsDown = new int[PADS];
+    private int[] padButtonsUp = new int[PADS];
+    private int[] pendingPadButtonsDown = new int[PADS];
+    private int[] pendingPadButtonsUp = new int[PADS];
+
+    /**
+     * Add the edges of the current frame to the pending edges.
+     */
+    void accumulate(Keyboard keyboard, Mouse mouse, GamePads pads) {
+        pendingKeysDown.or(keyboard.getKeyDownBits());
+        pendingKeysUp.or(keyboard.getKeyUpBits());
+        pendingMouseButtonsDown |= mouse.getButtonsDown();
+        pendingMouseButtonsUp |= mouse.getButtonsUp();
+        for (int jid = 0; jid < PADS; jid++) {
+            GamePad pad = pads.get(jid);
+            if (pad != null) {
+                pendingPadButtonsDown[jid] |= pad.getButtonsDown();
+                pendingPadButtonsUp[jid] |= pad.getButtonsUp();
+            }
+        }
+    }
+
+    /**
+     * Start a tick: the edges collected since the previous tick become the
+     * edges of this tick and collecting starts over. Call once at the
+     * beginning of every tick.
+     */
+    public void consume() {
+        FixedBitSet bits = keysDown;
+        keysDown = pendingKeysDown;
+        pendingKeysDown = bits;
+        pendingKeysDown.clear();
+        bits = keysUp;
+        keysUp = pendingKeysUp;
+        pendingKeysUp = bits;
+        pendingKeysUp.clear();
+
+        mouseButtonsDown = pendingMouseButtonsDown;
+        mouseButtonsUp = pendingMouseButtonsUp;
+        pendingMouseButtonsDown = 0;
+        pendingMouseButtonsUp = 0;
+
+        int[] buttons = padButtonsDown;
+        padButtonsDown = pendingPadButtonsDown;
+        pendingPadButtonsDown = buttons;
+        buttons = padButtonsUp;
+        padButtonsUp = pendingPadButtonsUp;
+        pendingPadButtonsUp = buttons;
+        for (int jid = 0; jid < PADS; jid++) {
+            pendingPadButtonsDown[jid] = 0;
+            pendingPadButtonsUp[jid] = 0;
+        }
+    }
+
+    /**
+     * Drop all pending edges and the edges of the current tick, e.g. after
+     * the simulation was paused.
+     */
+    public void clear() {
+        consume();
+        consume();
+    }
+
+    /**
+     * Checks whether the key went down since the previous tick.
+     *
+     * @param key GLFW key code
+     * @return True if the key went down, false otherwise.
+     */
+    public boolean getKeyDown(int key) {
+        return keysDown.get(key);
+    }
+
+    /**
+     * Checks whether the key went up since the previous tick.
+     *
+     * @param key GLFW key code
+     * @return True if the key went up, false otherwise.
+     */
+    public boolean getKeyUp(int key) {
+        return keysUp.get(key);
+    }
+
+    public boolean getMouseButtonDown(int button) {
+        return (mouseButtonsDown & (1 << button)) != 0;
+    }
+
+    public boolean getMouseButtonUp(int button) {
+        return (mouseButtonsUp & (1 << button)) != 0;
+    }
+
+    public int getMouseButtonsDown() {
+        return mouseButtonsDown;
+    }
+
+    public int getMouseButtonsUp() {
+        return mouseButtonsUp;
+    }
+
+    /**
+     * Checks whether the gamepad button went down since the previous tick.
+     *
+     * @param jid Joystick ID
+     * @param button GLFW gamepad button
+     * @return True if the button went down, false otherwise.
+     */
+    public boolean getGamePadButtonDown(int jid, int button) {
+        return (padButtonsDown[jid] & (1 << button)) != 0;
+    }
+
+    public boolean getGamePadButtonUp(int jid, int button) {
+        return (padButtonsUp[jid] & (1 << button)) != 0;
+    }
+
+    public int getGamePadButtonsDown(int jid) {
+        return padButtonsDown[jid];
+    }
+
+    public int getGamePadButtonsUp(int jid) {
+        return padButtonsUp[jid];
+    }
+}
@@ -0,0 +1,30 @@
+package com.gnarfodolfus.pixel.input;
+
+import jdk.jfr.*;
+
+/**
+ * JFR event of an input event becoming visible to the game, emitted by
+ * {@link InputMetrics} for each key, mouse button and gamepad press.
+ */
+@Name("com.gnarfodolfus.pixel.input.Latency")
+@Label("Input Latency")
+@Description("Time from an input event reaching the callback until the end of Input.update")
+@Category({"Pixel", "Input"})
+@StackTrace(false)
+final class InputLatencyEvent extends Event {
+
+    static final EventType TYPE = EventType.getEventType(InputLatencyEvent.class);
+
+    @Label("Device")
+    int device;
+
+    @Label("Code")
+    int code;
+
+    @Label("Action")
+    int action;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+}
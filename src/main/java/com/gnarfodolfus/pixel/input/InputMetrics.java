@@ -0,0 +1,118 @@
+package com.gnarfodolfus.pixel.input;
+
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Latency and cost of the input handling, recorded by {@link Input#update}
+ * while enabled with {@link Input#setMetricsEnabled(boolean)}:
+ *
+ * <ul>
+ * <li>Latency per device: the time from an event reaching the GLFW callback,
+ * or a gamepad press being sampled by the poller, until the end of the
+ * {@link Input#update} call that makes it visible to the game.</li>
+ * <li>Update time: the duration of each {@link Input#update} call.</li>
+ * </ul>
+ *
+ * The values are also emitted as the JFR events
+ * {@code com.gnarfodolfus.pixel.input.Latency} and
+ * {@code com.gnarfodolfus.pixel.input.Update} if a recording enables them.
+ * While disabled nothing is measured and an update costs a single check.
+ *
+ * <p>
+ * The histograms are written by the thread calling {@link Input#update}
+ * without synchronization. Read them on that thread, or copy them with
+ * {@link LatencyHistogram#set(LatencyHistogram)} and accept that a copy
+ * taken during an update may be slightly off.
+ */
+public final class InputMetrics {
+
+    public static final int DEVICE_KEYBOARD = InputEvents.DEVICE_KEYBOARD;
+    public static final int DEVICE_MOUSE = InputEvents.DEVICE_MOUSE;
+    public static final int DEVICE_GAMEPAD = 2;
+
+    private final LatencyHistogram[] latency = {
+        new LatencyHistogram(), new LatencyHistogram(), new LatencyHistogram()
+    };
+    private final LatencyHistogram updateTime = new LatencyHistogram();
+
+    InputMetrics() {
+    }
+
+    /**
+     * Record the update that started at the given time.
+     */
+    void record(long frame, long start, InputEvents events, GamePads pads) {
+        long end = System.nanoTime();
+        boolean jfr = InputLatencyEvent.TYPE.isEnabled();
+        for (int i = 0; i < events.size(); i++) {
+            int device = events.getDevice(i);
+            long nanos = end - events.getTime(i);
+            latency[device].record(nanos);
+            if (jfr)
+                commitLatency(device, events.getCode(i), events.getAction(i), nanos);
+        }
+        for (int jid = 0; jid < GamePads.PADS; jid++) {
+            long pressTime = pads.getPressTime(jid);
+            if (pressTime != 0L) {
+                long nanos = end - pressTime;
+                latency[DEVICE_GAMEPAD].record(nanos);
+                if (jfr)
+                    commitLatency(DEVICE_GAMEPAD, jid, GLFW.GLFW_PRESS, nanos);
+            }
+        }
+        long duration = System.nanoTime() - start;
+        updateTime.record(duration);
+        if (InputUpdateEvent.TYPE.isEnabled()) {
+            InputUpdateEvent event = new InputUpdateEvent();
+            event.frame = frame;
+            event.events = events.size();
+            event.updateTime = duration;
+            event.commit();
+        }
+    }
+
+    private static void commitLatency(int device, int code, int action, long nanos) {
+        InputLatencyEvent event = new InputLatencyEvent();
+        event.device = device;
+        event.code = code;
+        event.action = action;
+        event.latency = nanos;
+        event.commit();
+    }
+
+    /**
+     * Returns the latency histogram of a device. Gamepad presses are only
+     * measured while the gamepads are sampled by a poller, see
+     * {@link Input#setGamePadPollingRate(int)}, otherwise they are read
+     * during the update itself.
+     *
+     * @param device Device, e.g. {@link #DEVICE_KEYBOARD}
+     * @return Latency histogram
+     */
+    public LatencyHistogram getLatency(int device) {
+        return latency[device];
+    }
+
+    /**
+     * Returns the histogram of the {@link Input#update} durations.
+     *
+     * @return Update time histogram
+     */
+    public LatencyHistogram getUpdateTime() {
+        return updateTime;
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : latency)
+            histogram.reset();
+        updateTime.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "keyboard: " + latency[DEVICE_KEYBOARD]
+                + "\nmouse: " + latency[DEVICE_MOUSE]
+                + "\ngamepad: " + latency[DEVICE_GAMEPAD]
+                + "\nupdate: " + updateTime;
+    }
+}
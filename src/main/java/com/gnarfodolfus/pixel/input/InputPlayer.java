@@ -0,0 +1,187 @@
+package com.gnarfodolfus.pixel.input;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+
+/**
+ * Replays a recording written by {@link InputRecorder}. The file is memory
+ * mapped in windows of {@link #WINDOW_SIZE} bytes, so recordings of any
+ * length are never loaded into the heap. Decoded state is kept in
+ * preallocated fields, replaying a frame does not allocate.
+ */
+final class InputPlayer implements Closeable {
+
+    static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private static final float[] NO_AXES = new float[GamePad.AXES_COUNT];
+
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer map;
+    private long mapOffset;
+
+    private final FixedBitSet keys = new FixedBitSet(Keyboard.KEYBOARD_SIZE);
+    private final FixedBitSet keysDown = new FixedBitSet(Keyboard.KEYBOARD_SIZE);
+    private final FixedBitSet keysUp = new FixedBitSet(Keyboard.KEYBOARD_SIZE);
+    private float x;
+    private float y;
+    private int buttons;
+
+    private final boolean[] seen = new boolean[InputRecorder.MAX_PADS];
+    private final boolean[] connected = new boolean[InputRecorder.MAX_PADS];
+    private final int[] padButtons = new int[InputRecorder.MAX_PADS];
+    private final int[] padDown = new int[InputRecorder.MAX_PADS];
+    private final int[] padUp = new int[InputRecorder.MAX_PADS];
+    private final float[] axes = new float[InputRecorder.MAX_PADS * GamePad.AXES_COUNT];
+
+    private float elapsed;
+    private long frames;
+
+    InputPlayer(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            this.size = channel.size();
+            map(0L);
+            if (map.remaining() < 9 || map.getInt() != InputRecorder.MAGIC)
+                throw new IOException("Not an input recording: " + file);
+            int version = map.getInt();
+            if (version != InputRecorder.VERSION)
+                throw new IOException("Unsupported recording version: " + version);
+            int words = map.get();
+            if (words != keys.getWordCount())
+                throw new IOException("Recording does not match the keyboard size");
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Apply the next frame of the recording to the devices.
+     *
+     * @return True if a frame was applied, false if the end of the recording
+     * was reached
+     */
+    boolean next(Keyboard keyboard, Mouse mouse, GamePads pads) {
+        if (mapOffset + map.position() >= size)
+            return false;
+        if (map.remaining() < InputRecorder.MAX_FRAME_SIZE && mapOffset + map.limit() < size)
+            map(mapOffset + map.position());
+
+        int flags = map.get();
+        elapsed = map.getFloat();
+        if ((flags & InputRecorder.KEYS) != 0)
+            getWords(keys, true);
+        if ((flags & InputRecorder.KEYS_DOWN) != 0)
+            getWords(keysDown, false);
+        else
+            keysDown.clear();
+        if ((flags & InputRecorder.KEYS_UP) != 0)
+            getWords(keysUp, false);
+        else
+            keysUp.clear();
+        if ((flags & InputRecorder.POSITION) != 0) {
+            x = map.getFloat();
+            y = map.getFloat();
+        }
+        float motionX = 0f;
+        float motionY = 0f;
+        if ((flags & InputRecorder.MOTION) != 0) {
+            motionX = map.getFloat();
+            motionY = map.getFloat();
+        }
+        float scrollX = 0f;
+        float scrollY = 0f;
+        if ((flags & InputRecorder.SCROLL) != 0) {
+            scrollX = map.getFloat();
+            scrollY = map.getFloat();
+        }
+        int buttonsDown = 0;
+        int buttonsUp = 0;
+        if ((flags & InputRecorder.BUTTONS) != 0) {
+            buttons = InputRecorder.getVarInt(map);
+            buttonsDown = InputRecorder.getVarInt(map);
+            buttonsUp = InputRecorder.getVarInt(map);
+        }
+        Arrays.fill(padDown, 0);
+        Arrays.fill(padUp, 0);
+        if ((flags & InputRecorder.PADS) != 0)
+            getPads();
+
+        keyboard.replay(keys, keysDown, keysUp, elapsed);
+        mouse.replay(x, y, motionX, motionY, scrollX, scrollY, buttons, buttonsDown, buttonsUp, elapsed);
+        for (int jid = 0; jid < InputRecorder.MAX_PADS; jid++) {
+            if (seen[jid]) {
+                pads.getReplay(jid).replay(connected[jid], padButtons[jid], padDown[jid], padUp[jid], axes, jid * GamePad.AXES_COUNT, elapsed);
+            } else {
+                GamePad pad = pads.get(jid);
+                if (pad != null) // live pad that is not part of the recording
+                    pad.replay(false, 0, 0, 0, NO_AXES, 0, elapsed);
+            }
+        }
+        frames++;
+        return true;
+    }
+
+    /**
+     * Returns the delta time that was recorded for the current frame.
+     */
+    float getElapsed() {
+        return elapsed;
+    }
+
+    long getFrames() {
+        return frames;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void map(long offset) {
+        try {
+            map = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW_SIZE, size - offset));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        map.order(ByteOrder.LITTLE_ENDIAN);
+        mapOffset = offset;
+    }
+
+    private void getWords(FixedBitSet bits, boolean xor) {
+        int mask = map.get() & 0xff;
+        int count = bits.getWordCount();
+        for (int i = 0; i < count; i++) {
+            if ((mask & (1 << i)) != 0)
+                bits.setWord(i, xor ? bits.getWord(i) ^ map.getLong() : map.getLong());
+            else if (!xor)
+                bits.setWord(i, 0L);
+        }
+    }
+
+    private void getPads() {
+        int count = map.get() & 0xff;
+        for (int n = 0; n < count; n++) {
+            int jid = map.get();
+            int flags = map.get();
+            int axesMask = map.get();
+            seen[jid] |= (flags & InputRecorder.PAD_PRESENT) != 0;
+            connected[jid] = (flags & InputRecorder.PAD_CONNECTED) != 0;
+            if ((flags & InputRecorder.PAD_BUTTONS) != 0)
+                padButtons[jid] = InputRecorder.getVarInt(map);
+            if ((flags & InputRecorder.PAD_EDGES) != 0) {
+                padDown[jid] = InputRecorder.getVarInt(map);
+                padUp[jid] = InputRecorder.getVarInt(map);
+            }
+            int axesOffset = jid * GamePad.AXES_COUNT;
+            for (int i = 0; i < GamePad.AXES_COUNT; i++) {
+                if ((axesMask & (1 << i)) != 0)
+                    axes[axesOffset + i] = map.getFloat();
+            }
+        }
+    }
+}
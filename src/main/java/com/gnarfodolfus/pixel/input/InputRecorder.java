@@ -0,0 +1,257 @@
+package com.gnarfodolfus.pixel.input;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Writes the input state of each frame to a file. Only the changes to the
+ * previous frame are written, so an idle frame costs a few bytes. Frames are
+ * collected in a reusable direct buffer which is flushed to the file when it
+ * is almost full, recording a frame does not allocate.
+ *
+ * <p>
+ * File layout: a header ({@link #MAGIC}, {@link #VERSION}, number of keyboard
+ * words) followed by one record per frame. Each frame record starts with a
+ * flag byte and the frame delta time, followed by the sections announced by
+ * the flags:
+ * <ul>
+ * <li>{@link #KEYS}, {@link #KEYS_DOWN}, {@link #KEYS_UP}: a word mask byte
+ * and the selected bitset words. Keys are XOR'ed with the previous frame,
+ * down/up keys are written as they are.</li>
+ * <li>{@link #POSITION}, {@link #MOTION}, {@link #SCROLL}: two floats.</li>
+ * <li>{@link #BUTTONS}: pressed, down and up button masks as varints.</li>
+ * <li>{@link #PADS}: number of changed pads, then per pad the ID, a flag byte,
+ * a byte mask of changed axes, the button mask as varint if changed, the down
+ * and up masks as varints if they differ from the button change and the
+ * changed raw axes as floats.</li>
+ * </ul>
+ */
+final class InputRecorder implements Closeable {
+
+    static final int MAGIC = 0x50584952; // PXIR
+    static final int VERSION = 3;
+
+    static final int KEYS = 1;
+    static final int KEYS_DOWN = 1 << 1;
+    static final int KEYS_UP = 1 << 2;
+    static final int POSITION = 1 << 3;
+    static final int SCROLL = 1 << 4;
+    static final int BUTTONS = 1 << 5;
+    static final int PADS = 1 << 6;
+    static final int MOTION = 1 << 7;
+
+    static final int PAD_CONNECTED = 1;
+    static final int PAD_PRESENT = 1 << 1;
+    static final int PAD_BUTTONS = 1 << 2;
+    static final int PAD_EDGES = 1 << 3;
+
+    static final int MAX_PADS = GLFW.GLFW_JOYSTICK_LAST + 1;
+    static final int MAX_FRAME_SIZE = 4096;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+    private final FixedBitSet lastKeys = new FixedBitSet(Keyboard.KEYBOARD_SIZE);
+    private float lastX;
+    private float lastY;
+    private int lastButtons;
+
+    private final boolean[] lastPresent = new boolean[MAX_PADS];
+    private final boolean[] lastConnected = new boolean[MAX_PADS];
+    private final int[] lastPadButtons = new int[MAX_PADS];
+    private final float[] lastAxes = new float[MAX_PADS * GamePad.AXES_COUNT];
+
+    private long frames;
+
+    InputRecorder(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.put((byte) lastKeys.getWordCount());
+    }
+
+    /**
+     * Append the current state of the devices as a new frame.
+     */
+    void record(float elapsed, Keyboard keyboard, Mouse mouse, GamePads pads) {
+        if (buffer.remaining() < MAX_FRAME_SIZE)
+            flush();
+
+        FixedBitSet keys = keyboard.getKeyBits();
+        FixedBitSet down = keyboard.getKeyDownBits();
+        FixedBitSet up = keyboard.getKeyUpBits();
+        float x = mouse.getPosition().getX();
+        float y = mouse.getPosition().getY();
+        float motionX = (float) mouse.getMovementX();
+        float motionY = (float) mouse.getMovementY();
+        float scrollX = mouse.getScroll().getX();
+        float scrollY = mouse.getScroll().getY();
+        int buttons = mouse.getButtons();
+        int buttonsDown = mouse.getButtonsDown();
+        int buttonsUp = mouse.getButtonsUp();
+
+        int flagsPosition = buffer.position();
+        buffer.put((byte) 0);
+        buffer.putFloat(elapsed);
+        int flags = 0;
+        if (putWords(keys, lastKeys))
+            flags |= KEYS;
+        if (putWords(down, null))
+            flags |= KEYS_DOWN;
+        if (putWords(up, null))
+            flags |= KEYS_UP;
+        if (x != lastX || y != lastY) {
+            buffer.putFloat(x).putFloat(y);
+            flags |= POSITION;
+        }
+        if (motionX != 0f || motionY != 0f) {
+            buffer.putFloat(motionX).putFloat(motionY);
+            flags |= MOTION;
+        }
+        if (scrollX != 0f || scrollY != 0f) {
+            buffer.putFloat(scrollX).putFloat(scrollY);
+            flags |= SCROLL;
+        }
+        if (buttons != lastButtons || buttonsDown != 0 || buttonsUp != 0) {
+            putVarInt(buffer, buttons);
+            putVarInt(buffer, buttonsDown);
+            putVarInt(buffer, buttonsUp);
+            flags |= BUTTONS;
+        }
+        if (putPads(pads))
+            flags |= PADS;
+        buffer.put(flagsPosition, (byte) flags);
+
+        lastKeys.set(keys);
+        lastX = x;
+        lastY = y;
+        lastButtons = buttons;
+        frames++;
+    }
+
+    long getFrames() {
+        return frames;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Write the non-zero words of the bitset, XOR'ed with the previous bitset
+     * if there is one. Returns false and writes nothing if all words are zero.
+     */
+    private boolean putWords(FixedBitSet bits, FixedBitSet previous) {
+        int mask = 0;
+        int count = bits.getWordCount();
+        for (int i = 0; i < count; i++) {
+            long word = previous != null ? bits.getWord(i) ^ previous.getWord(i) : bits.getWord(i);
+            if (word != 0)
+                mask |= 1 << i;
+        }
+        if (mask == 0)
+            return false;
+        buffer.put((byte) mask);
+        for (int i = 0; i < count; i++) {
+            if ((mask & (1 << i)) != 0)
+                buffer.putLong(previous != null ? bits.getWord(i) ^ previous.getWord(i) : bits.getWord(i));
+        }
+        return true;
+    }
+
+    private boolean putPads(GamePads pads) {
+        int countPosition = buffer.position();
+        buffer.put((byte) 0);
+        int count = 0;
+        for (int jid = 0; jid < MAX_PADS; jid++) {
+            GamePad pad = pads.get(jid);
+            boolean present = pad != null;
+            boolean connected = present && pad.isConnected();
+            int buttons = present ? pad.getButtons() : 0;
+            int down = present ? pad.getButtonsDown() : 0;
+            int up = present ? pad.getButtonsUp() : 0;
+            int axesOffset = jid * GamePad.AXES_COUNT;
+            int axesMask = 0;
+            for (int i = 0; i < GamePad.AXES_COUNT; i++) {
+                float value = present ? pad.getAxeRawValue(i) : 0f;
+                if (Float.floatToRawIntBits(value) != Float.floatToRawIntBits(lastAxes[axesOffset + i]))
+                    axesMask |= 1 << i;
+            }
+            boolean buttonsChanged = buttons != lastPadButtons[jid];
+            // Edges are only written if they can't be derived from the state
+            // change, i.e. for taps latched between two frames
+            int last = lastPadButtons[jid];
+            boolean edges = down != (buttons & ~last) || up != (last & ~buttons);
+            if (present == lastPresent[jid] && connected == lastConnected[jid] && !buttonsChanged && !edges && axesMask == 0)
+                continue;
+
+            int flags = (connected ? PAD_CONNECTED : 0) | (present ? PAD_PRESENT : 0)
+                    | (buttonsChanged ? PAD_BUTTONS : 0) | (edges ? PAD_EDGES : 0);
+            buffer.put((byte) jid);
+            buffer.put((byte) flags);
+            buffer.put((byte) axesMask);
+            if (buttonsChanged)
+                putVarInt(buffer, buttons);
+            if (edges) {
+                putVarInt(buffer, down);
+                putVarInt(buffer, up);
+            }
+            for (int i = 0; i < GamePad.AXES_COUNT; i++) {
+                if ((axesMask & (1 << i)) != 0) {
+                    float value = present ? pad.getAxeRawValue(i) : 0f;
+                    buffer.putFloat(value);
+                    lastAxes[axesOffset + i] = value;
+                }
+            }
+            lastPresent[jid] = present;
+            lastConnected[jid] = connected;
+            lastPadButtons[jid] = buttons;
+            count++;
+        }
+        if (count == 0) {
+            buffer.position(countPosition);
+            return false;
+        }
+        buffer.put(countPosition, (byte) count);
+        return true;
+    }
+
+    static void putVarInt(ByteBuffer buf, int value) {
+        while ((value & ~0x7f) != 0) {
+            buf.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buf.put((byte) value);
+    }
+
+    static int getVarInt(ByteBuffer buf) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = buf.get();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+}
@@ -0,0 +1,216 @@
+package com.gnarfodolfus.pixel.input;
+
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Copy of the input state of one frame: keyboard and mouse of the main window
+ * and all gamepads. Other threads read the state of the latest frame with
+ * {@link Input#getSnapshot(InputSnapshot)} into a snapshot they own and reuse:
+ *
+ * <pre>
+ * private final InputSnapshot input = new InputSnapshot();
+ * ...
+ * Input.getSnapshot(input); // lock free, does not allocate
+ * if (input.getKey(GLFW.GLFW_KEY_W)) ...
+ * </pre>
+ *
+ * A snapshot is never modified by the input system, it only changes when it
+ * is passed to {@link Input#getSnapshot(InputSnapshot)} again.
+ */
+public final class InputSnapshot {
+
+    static final int PADS = GLFW.GLFW_JOYSTICK_LAST + 1;
+    static final int AXES = GamePad.AXES_COUNT;
+
+    // Package-private for InputCodec
+    long frame = -1;
+
+    final FixedBitSet keys = new FixedBitSet(Keyboard.KEYBOARD_SIZE);
+    final FixedBitSet keysDown = new FixedBitSet(Keyboard.KEYBOARD_SIZE);
+    final FixedBitSet keysUp = new FixedBitSet(Keyboard.KEYBOARD_SIZE);
+
+    double mouseX;
+    double mouseY;
+    double movementX;
+    double movementY;
+    float scrollX;
+    float scrollY;
+    int mouseButtons;
+    int mouseButtonsDown;
+    int mouseButtonsUp;
+
+    int padsConnected;
+    final int[] padButtons = new int[PADS];
+    final int[] padButtonsDown = new int[PADS];
+    final int[] padButtonsUp = new int[PADS];
+    final float[] padAxes = new float[PADS * AXES];
+
+    void capture(long frame, Keyboard keyboard, Mouse mouse, GamePads pads) {
+        this.frame = frame;
+        keys.set(keyboard.getKeyBits());
+        keysDown.set(keyboard.getKeyDownBits());
+        keysUp.set(keyboard.getKeyUpBits());
+
+        mouseX = mouse.getPositionX();
+        mouseY = mouse.getPositionY();
+        movementX = mouse.getMovementX();
+        movementY = mouse.getMovementY();
+        scrollX = mouse.getScroll().getX();
+        scrollY = mouse.getScroll().getY();
+        mouseButtons = mouse.getButtons();
+        mouseButtonsDown = mouse.getButtonsDown();
+        mouseButtonsUp = mouse.getButtonsUp();
+
+        padsConnected = 0;
+        for (int jid = 0; jid < PADS; jid++) {
+            GamePad pad = pads.get(jid);
+            int offset = jid * AXES;
+            if (pad == null) {
+                padButtons[jid] = 0;
+                padButtonsDown[jid] = 0;
+                padButtonsUp[jid] = 0;
+                for (int i = 0; i < AXES; i++)
+                    padAxes[offset + i] = 0f;
+                continue;
+            }
+            if (pad.isConnected())
+                padsConnected |= 1 << jid;
+            padButtons[jid] = pad.getButtons();
+            padButtonsDown[jid] = pad.getButtonsDown();
+            padButtonsUp[jid] = pad.getButtonsUp();
+            for (int i = 0; i < AXES; i++)
+                padAxes[offset + i] = pad.getAxeValue(i);
+        }
+    }
+
+    void copy(InputSnapshot src) {
+        frame = src.frame;
+        keys.set(src.keys);
+        keysDown.set(src.keysDown);
+        keysUp.set(src.keysUp);
+        mouseX = src.mouseX;
+        mouseY = src.mouseY;
+        movementX = src.movementX;
+        movementY = src.movementY;
+        scrollX = src.scrollX;
+        scrollY = src.scrollY;
+        mouseButtons = src.mouseButtons;
+        mouseButtonsDown = src.mouseButtonsDown;
+        mouseButtonsUp = src.mouseButtonsUp;
+        padsConnected = src.padsConnected;
+        System.arraycopy(src.padButtons, 0, padButtons, 0, PADS);
+        System.arraycopy(src.padButtonsDown, 0, padButtonsDown, 0, PADS);
+        System.arraycopy(src.padButtonsUp, 0, padButtonsUp, 0, PADS);
+        System.arraycopy(src.padAxes, 0, padAxes, 0, PADS * AXES);
+    }
+
+    /**
+     * Returns the number of the frame this snapshot was taken of, counting
+     * the calls of {@link Input#update}.
+     *
+     * @return Frame number or -1 if no frame was published yet
+     */
+    public long getFrame() {
+        return frame;
+    }
+
+    /**
+     * Renumber this snapshot, e.g. with the simulation tick of a networked
+     * game before encoding it with {@link InputCodec}.
+     *
+     * @param frame Frame number
+     */
+    public void setFrame(long frame) {
+        this.frame = frame;
+    }
+
+    public boolean getKey(int key) {
+        return keys.get(key);
+    }
+
+    public boolean getKeyDown(int key) {
+        return keysDown.get(key);
+    }
+
+    public boolean getKeyUp(int key) {
+        return keysUp.get(key);
+    }
+
+    public double getMouseX() {
+        return mouseX;
+    }
+
+    public double getMouseY() {
+        return mouseY;
+    }
+
+    public double getMovementX() {
+        return movementX;
+    }
+
+    public double getMovementY() {
+        return movementY;
+    }
+
+    public float getScrollX() {
+        return scrollX;
+    }
+
+    public float getScrollY() {
+        return scrollY;
+    }
+
+    public boolean getMouseButton(int button) {
+        return (mouseButtons & (1 << button)) != 0;
+    }
+
+    public int getMouseButtons() {
+        return mouseButtons;
+    }
+
+    public int getMouseButtonsDown() {
+        return mouseButtonsDown;
+    }
+
+    public int getMouseButtonsUp() {
+        return mouseButtonsUp;
+    }
+
+    /**
+     * Checks whether a gamepad was connected at the given joystick ID.
+     *
+     * @param jid Joystick ID
+     * @return True if the gamepad was connected, false otherwise.
+     */
+    public boolean isGamePadConnected(int jid) {
+        return (padsConnected & (1 << jid)) != 0;
+    }
+
+    public boolean getGamePadButton(int jid, int button) {
+        return (padButtons[jid] & (1 << button)) != 0;
+    }
+
+    public int getGamePadButtons(int jid) {
+        return padButtons[jid];
+    }
+
+    public int getGamePadButtonsDown(int jid) {
+        return padButtonsDown[jid];
+    }
+
+    public int getGamePadButtonsUp(int jid) {
+        return padButtonsUp[jid];
+    }
+
+    /**
+     * Get the processed axe value of a gamepad, see
+     * {@link GamePad#getAxeValue(int)}.
+     *
+     * @param jid Joystick ID
+     * @param axeId Axe ID according to GLFW
+     * @return The axe value.
+     */
+    public float getAxeValue(int jid, int axeId) {
+        return padAxes[jid * AXES + axeId];
+    }
+}
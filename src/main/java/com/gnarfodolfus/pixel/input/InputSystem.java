@@ -0,0 +1,209 @@
+package com.gnarfodolfus.pixel.input;
+
+import java.util.Arrays;
+import org.pixel.commons.DeltaTime;
+import org.pixel.ext.ecs.component.GameComponent;
+
+/**
+ * Component writing the actions of all controllable game objects once per
+ * frame. Each player has an {@link ActionMap} and a device: the keyboard and
+ * mouse of a window, a gamepad or none. Game objects get a
+ * {@link PlayerInput} component of a player. An update evaluates each
+ * player's bindings once and then copies the results into all inputs in a
+ * single pass, so the cost of a game object is a few word copies no matter
+ * how many objects share a player:
+ *
+ * <pre>
+ * InputSystem system = new InputSystem();
+ * int p1 = system.addPlayer(p1Actions, InputSystem.DEVICE_KEYBOARD_MOUSE);
+ * int p2 = system.addPlayer(p2Actions, GLFW.GLFW_JOYSTICK_1);
+ * inputObject.addComponent(system); // game object added to the scene first
+ * player.addComponent(system.createInput(p1));
+ * </pre>
+ *
+ * Add the system to a game object that the scene updates before the objects
+ * reading their inputs, and update the scene after {@link Input#update}.
+ */
+public final class InputSystem extends GameComponent {
+
+    /**
+     * The player has no device, all actions are released.
+     */
+    public static final int DEVICE_NONE = -2;
+
+    /**
+     * The player uses the keyboard and mouse of the window.
+     */
+    public static final int DEVICE_KEYBOARD_MOUSE = -1;
+
+    private final WindowInput window;
+
+    private ActionMap[] maps = new ActionMap[4];
+    private int[] devices = new int[4];
+    private int playerCount;
+
+    private PlayerInput[] inputs = new PlayerInput[16];
+    private int inputCount;
+
+    /**
+     * Creates a system reading the keyboard and mouse of the main window.
+     */
+    public InputSystem() {
+        this(Input.getWindow());
+    }
+
+    /**
+     * Creates a system reading the keyboard and mouse of the given window.
+     *
+     * @param window Window input
+     */
+    public InputSystem(WindowInput window) {
+        this.window = window;
+    }
+
+    /**
+     * Adds a player.
+     *
+     * @param map Bindings of the player, not shared with other players
+     * @param device {@link #DEVICE_KEYBOARD_MOUSE}, {@link #DEVICE_NONE} or a
+     * joystick ID
+     * @return Player ID
+     */
+    public int addPlayer(ActionMap map, int device) {
+        if (map == null)
+            throw new IllegalArgumentException("map is null");
+        for (int p = 0; p < playerCount; p++)
+            if (maps[p] == map)
+                throw new IllegalArgumentException("ActionMap already used by player " + p);
+        checkDevice(device);
+        if (playerCount == maps.length) {
+            maps = Arrays.copyOf(maps, playerCount * 2);
+            devices = Arrays.copyOf(devices, playerCount * 2);
+        }
+        maps[playerCount] = map;
+        devices[playerCount] = device;
+        return playerCount++;
+    }
+
+    /**
+     * Assigns another device to the player, e.g. when a gamepad connects.
+     *
+     * @param player Player ID
+     * @param device {@link #DEVICE_KEYBOARD_MOUSE}, {@link #DEVICE_NONE} or a
+     * joystick ID
+     */
+    public void setDevice(int player, int device) {
+        checkPlayer(player);
+        checkDevice(device);
+        devices[player] = device;
+    }
+
+    public int getDevice(int player) {
+        checkPlayer(player);
+        return devices[player];
+    }
+
+    public ActionMap getActionMap(int player) {
+        checkPlayer(player);
+        return maps[player];
+    }
+
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    /**
+     * Creates an input component for a game object controlled by the player.
+     * It is updated until it is {@link #remove(PlayerInput) removed}.
+     *
+     * @param player Player ID
+     * @return Player input
+     */
+    public PlayerInput createInput(int player) {
+        checkPlayer(player);
+        PlayerInput input = new PlayerInput(player);
+        add(input);
+        return input;
+    }
+
+    /**
+     * Starts updating an input created by the game object, e.g. a component
+     * extending {@link PlayerInput}. It is updated until it is
+     * {@link #remove(PlayerInput) removed}.
+     *
+     * @param input Player input
+     */
+    public void add(PlayerInput input) {
+        if (input == null)
+            throw new IllegalArgumentException("input is null");
+        checkPlayer(input.getPlayer());
+        for (int i = 0; i < inputCount; i++)
+            if (inputs[i] == input)
+                return;
+        if (inputCount == inputs.length)
+            inputs = Arrays.copyOf(inputs, inputCount * 2);
+        inputs[inputCount++] = input;
+    }
+
+    /**
+     * Hands the game object over to another player.
+     *
+     * @param input Player input
+     * @param player Player ID
+     */
+    public void setPlayer(PlayerInput input, int player) {
+        checkPlayer(player);
+        input.setPlayer(player);
+    }
+
+    /**
+     * Stops updating the input, e.g. when its game object is removed.
+     *
+     * @param input Player input
+     */
+    public void remove(PlayerInput input) {
+        for (int i = 0; i < inputCount; i++) {
+            if (inputs[i] == input) {
+                inputs[i] = inputs[--inputCount];
+                inputs[inputCount] = null;
+                input.clear();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Evaluates the bindings of all players and writes the actions into the
+     * inputs.
+     *
+     * @param delta delta time
+     */
+    @Override
+    public void update(DeltaTime delta) {
+        Keyboard keyboard = window.getKeyboard();
+        Mouse mouse = window.getMouse();
+        for (int p = 0; p < playerCount; p++) {
+            int device = devices[p];
+            if (device == DEVICE_KEYBOARD_MOUSE)
+                maps[p].update(keyboard, mouse, null);
+            else if (device == DEVICE_NONE)
+                maps[p].update(null, null, null);
+            else
+                maps[p].update(null, null, Input.getGamePad(device));
+        }
+        for (int i = 0; i < inputCount; i++) {
+            PlayerInput input = inputs[i];
+            input.apply(maps[input.getPlayer()]);
+        }
+    }
+
+    private void checkPlayer(int player) {
+        if (player < 0 || player >= playerCount)
+            throw new IllegalArgumentException("Invalid player: " + player);
+    }
+
+    private static void checkDevice(int device) {
+        if (device < DEVICE_NONE || device >= GamePads.PADS)
+            throw new IllegalArgumentException("Invalid device: " + device);
+    }
+}
@@ -0,0 +1,26 @@
+package com.gnarfodolfus.pixel.input;
+
+import jdk.jfr.*;
+
+/**
+ * JFR event of one {@link Input#update} call, emitted by
+ * {@link InputMetrics}.
+ */
+@Name("com.gnarfodolfus.pixel.input.Update")
+@Label("Input Update")
+@Category({"Pixel", "Input"})
+@StackTrace(false)
+final class InputUpdateEvent extends Event {
+
+    static final EventType TYPE = EventType.getEventType(InputUpdateEvent.class);
+
+    @Label("Frame")
+    long frame;
+
+    @Label("Events")
+    int events;
+
+    @Label("Update Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long updateTime;
+}
@@ -0,0 +1,229 @@
+package com.gnarfodolfus.pixel.input;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Raw joystick, e.g. a flight stick, a wheel or a button box. Unlike a
+ * {@link GamePad} it is not mapped to the standard gamepad layout, it has as
+ * many buttons, axes and hats as the device reports. Every connected device
+ * is a joystick, gamepads included. By default GLFW reports each hat as four
+ * additional buttons after the regular ones as well, so hats have press and
+ * release edges like buttons.
+ *
+ * <p>
+ * Button states are read from a view of the backend's state without copying
+ * and packed into a bitset eight buttons at a time. Nothing is allocated per
+ * frame, the bitsets only grow when a device with more buttons connects.
+ */
+public final class Joystick {
+
+    private final int jid;
+    private final InputBackend backend;
+    private String name;
+    private boolean connected;
+
+    private FixedBitSet buttons = new FixedBitSet(0);
+    private FixedBitSet lastButtons = new FixedBitSet(0);
+    private FixedBitSet buttonsDown = new FixedBitSet(0);
+    private FixedBitSet buttonsUp = new FixedBitSet(0);
+    private int buttonCount;
+
+    private float[] axes = new float[0];
+    private int axisCount;
+    private byte[] hats = new byte[0];
+    private int hatCount;
+
+    Joystick(int joystickId, InputBackend backend) {
+        this.jid = joystickId;
+        this.backend = backend;
+        reconnect();
+    }
+
+    /**
+     * Called when a joystick connects with the ID of this joystick again,
+     * which may be a different device with a different number of buttons.
+     */
+    void reconnect() {
+        name = backend.getJoystickName(jid);
+        ByteBuffer buttonStates = backend.getJoystickButtons(jid);
+        FloatBuffer axisValues = backend.getJoystickAxes(jid);
+        ByteBuffer hatStates = backend.getJoystickHats(jid);
+        connected = buttonStates != null;
+
+        buttonCount = buttonStates != null ? buttonStates.capacity() : 0;
+        if (buttons.getWordCount() << 6 < buttonCount) {
+            FixedBitSet last = new FixedBitSet(buttonCount);
+            last.set(buttons); // keep the held buttons of the old device for their up edges
+            buttons = last;
+            lastButtons = new FixedBitSet(buttonCount);
+            buttonsDown = new FixedBitSet(buttonCount);
+            buttonsUp = new FixedBitSet(buttonCount);
+        }
+        axisCount = axisValues != null ? axisValues.capacity() : 0;
+        if (axes.length < axisCount)
+            axes = new float[axisCount];
+        hatCount = hatStates != null ? hatStates.capacity() : 0;
+        if (hats.length < hatCount)
+            hats = new byte[hatCount];
+    }
+
+    /**
+     * Read the current state of the joystick. A joystick that disconnected
+     * releases all buttons and centers its axes and hats.
+     */
+    void update() {
+        FixedBitSet last = lastButtons;
+        lastButtons = buttons;
+        buttons = last;
+
+        ByteBuffer buttonStates = connected ? backend.getJoystickButtons(jid) : null;
+        connected = buttonStates != null;
+        if (connected) {
+            buttons.set(buttonStates, Math.min(buttonCount, buttonStates.capacity()));
+            FloatBuffer axisValues = backend.getJoystickAxes(jid);
+            if (axisValues != null)
+                axisValues.get(0, axes, 0, Math.min(axisCount, axisValues.capacity()));
+            ByteBuffer hatStates = backend.getJoystickHats(jid);
+            if (hatStates != null)
+                hatStates.get(0, hats, 0, Math.min(hatCount, hatStates.capacity()));
+        } else {
+            buttons.clear();
+            for (int i = 0; i < axisCount; i++)
+                axes[i] = 0f;
+            for (int i = 0; i < hatCount; i++)
+                hats[i] = GLFW.GLFW_HAT_CENTERED;
+        }
+        buttonsDown.andNot(buttons, lastButtons);
+        buttonsUp.andNot(lastButtons, buttons);
+    }
+
+    public int getId() {
+        return jid;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Checks whether the joystick has a gamepad mapping, i.e. whether it is
+     * available as a {@link GamePad} as well.
+     *
+     * @return True if the joystick is a gamepad, false otherwise.
+     */
+    public boolean isGamePad() {
+        return connected && backend.isGamePad(jid);
+    }
+
+    public int getButtonCount() {
+        return buttonCount;
+    }
+
+    public int getAxisCount() {
+        return axisCount;
+    }
+
+    public int getHatCount() {
+        return hatCount;
+    }
+
+    /**
+     * Checks whether the button is pressed.
+     *
+     * @param button Button index
+     * @return True if the button is pressed, false otherwise.
+     */
+    public boolean getButton(int button) {
+        return button >= 0 && button < buttonCount && buttons.get(button);
+    }
+
+    /**
+     * Checks whether the button was pressed this frame.
+     *
+     * @param button Button index
+     * @return True if the button went down, false otherwise.
+     */
+    public boolean getButtonDown(int button) {
+        return button >= 0 && button < buttonCount && buttonsDown.get(button);
+    }
+
+    /**
+     * Checks whether the button was released this frame.
+     *
+     * @param button Button index
+     * @return True if the button went up, false otherwise.
+     */
+    public boolean getButtonUp(int button) {
+        return button >= 0 && button < buttonCount && buttonsUp.get(button);
+    }
+
+    /**
+     * Writes the indices of all pressed buttons into the given array. Returns
+     * the number of pressed buttons, which is larger than the array length if
+     * the result was truncated.
+     *
+     * @param dst Destination array
+     * @return Number of pressed buttons
+     */
+    public int getButtons(int[] dst) {
+        return buttons.getSetBitsTotal(dst);
+    }
+
+    public int getButtonsDown(int[] dst) {
+        return buttonsDown.getSetBitsTotal(dst);
+    }
+
+    public int getButtonsUp(int[] dst) {
+        return buttonsUp.getSetBitsTotal(dst);
+    }
+
+    /**
+     * Returns the value of an axis.
+     *
+     * @param axis Axis index
+     * @return Axis value in [-1, 1] or 0 if the joystick has no such axis
+     */
+    public float getAxis(int axis) {
+        return axis >= 0 && axis < axisCount ? axes[axis] : 0f;
+    }
+
+    /**
+     * Returns the state of a hat.
+     *
+     * @param hat Hat index
+     * @return Combination of {@link GLFW#GLFW_HAT_UP},
+     * {@link GLFW#GLFW_HAT_RIGHT}, {@link GLFW#GLFW_HAT_DOWN} and
+     * {@link GLFW#GLFW_HAT_LEFT} or {@link GLFW#GLFW_HAT_CENTERED}
+     */
+    public int getHat(int hat) {
+        return hat >= 0 && hat < hatCount ? hats[hat] : GLFW.GLFW_HAT_CENTERED;
+    }
+
+    /**
+     * Checks whether a hat is pushed in the given direction, diagonals count
+     * for both of their directions.
+     *
+     * @param hat Hat index
+     * @param direction Direction, e.g. {@link GLFW#GLFW_HAT_UP}
+     * @return True if the hat is pushed in that direction, false otherwise.
+     */
+    public boolean getHat(int hat, int direction) {
+        return (getHat(hat) & direction) != 0;
+    }
+
+    FixedBitSet getButtonBits() {
+        return buttons;
+    }
+
+    @Override
+    public String toString() {
+        return "Joystick{" + "jid=" + jid + ", name=" + name + ", buttons=" + buttonCount
+                + ", axes=" + axisCount + ", hats=" + hatCount + '}';
+    }
+}
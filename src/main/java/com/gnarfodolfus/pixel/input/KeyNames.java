@@ -0,0 +1,128 @@
+package com.gnarfodolfus.pixel.input;
+
+import java.util.Arrays;
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Table of key names and scancodes of a window, read from the backend once
+ * and rebuilt lazily after {@link #invalidate()}, e.g. when the window
+ * regains focus and the keyboard layout may have changed. Lookups are array
+ * reads and return the same string instances until the next rebuild.
+ *
+ * <p>
+ * Printable keys are named by the layout, e.g. "Q" on a QWERTY and "A" on
+ * an AZERTY layout for {@link GLFW#GLFW_KEY_Q}. Single
+ * letters are upper cased. Other keys get fixed English names like "Left
+ * Shift".
+ */
+final class KeyNames {
+
+    static final int SCANCODE_SIZE = 512;
+
+    private static final String[] FIXED = fixedNames();
+
+    private final String[] names = new String[Keyboard.KEYBOARD_SIZE];
+    private final int[] scancodes = new int[Keyboard.KEYBOARD_SIZE];
+    private final int[] keys = new int[SCANCODE_SIZE];
+
+    private InputBackend backend;
+    private boolean valid;
+
+    void init(InputBackend backend) {
+        this.backend = backend;
+        valid = false;
+    }
+
+    void invalidate() {
+        valid = false;
+    }
+
+    String getName(int key) {
+        if (key < 0 || key >= Keyboard.KEYBOARD_SIZE)
+            return null;
+        validate();
+        return names[key];
+    }
+
+    int getScancode(int key) {
+        if (key < 0 || key >= Keyboard.KEYBOARD_SIZE)
+            return -1;
+        validate();
+        return scancodes[key];
+    }
+
+    int getKey(int scancode) {
+        if (scancode < 0 || scancode >= SCANCODE_SIZE)
+            return GLFW.GLFW_KEY_UNKNOWN;
+        validate();
+        return keys[scancode];
+    }
+
+    private void validate() {
+        if (!valid)
+            build();
+    }
+
+    private void build() {
+        Arrays.fill(keys, GLFW.GLFW_KEY_UNKNOWN);
+        Arrays.fill(scancodes, -1);
+        for (int key = GLFW.GLFW_KEY_SPACE; key < Keyboard.KEYBOARD_SIZE; key++) {
+            int scancode = backend != null ? backend.getKeyScancode(key) : -1;
+            scancodes[key] = scancode;
+            if (scancode >= 0 && scancode < SCANCODE_SIZE)
+                keys[scancode] = key;
+            String name = backend != null && FIXED[key] == null ? backend.getKeyName(key, 0) : null;
+            if (name != null && name.length() == 1)
+                name = String.valueOf(Character.toUpperCase(name.charAt(0)));
+            names[key] = name != null ? name : FIXED[key];
+        }
+        valid = true;
+    }
+
+    private static String[] fixedNames() {
+        String[] n = new String[Keyboard.KEYBOARD_SIZE];
+        n[GLFW.GLFW_KEY_SPACE] = "Space";
+        n[GLFW.GLFW_KEY_WORLD_1] = "World 1";
+        n[GLFW.GLFW_KEY_WORLD_2] = "World 2";
+        n[GLFW.GLFW_KEY_ESCAPE] = "Escape";
+        n[GLFW.GLFW_KEY_ENTER] = "Enter";
+        n[GLFW.GLFW_KEY_TAB] = "Tab";
+        n[GLFW.GLFW_KEY_BACKSPACE] = "Backspace";
+        n[GLFW.GLFW_KEY_INSERT] = "Insert";
+        n[GLFW.GLFW_KEY_DELETE] = "Delete";
+        n[GLFW.GLFW_KEY_RIGHT] = "Right";
+        n[GLFW.GLFW_KEY_LEFT] = "Left";
+        n[GLFW.GLFW_KEY_DOWN] = "Down";
+        n[GLFW.GLFW_KEY_UP] = "Up";
+        n[GLFW.GLFW_KEY_PAGE_UP] = "Page Up";
+        n[GLFW.GLFW_KEY_PAGE_DOWN] = "Page Down";
+        n[GLFW.GLFW_KEY_HOME] = "Home";
+        n[GLFW.GLFW_KEY_END] = "End";
+        n[GLFW.GLFW_KEY_CAPS_LOCK] = "Caps Lock";
+        n[GLFW.GLFW_KEY_SCROLL_LOCK] = "Scroll Lock";
+        n[GLFW.GLFW_KEY_NUM_LOCK] = "Num Lock";
+        n[GLFW.GLFW_KEY_PRINT_SCREEN] = "Print Screen";
+        n[GLFW.GLFW_KEY_PAUSE] = "Pause";
+        for (int i = 0; i <= GLFW.GLFW_KEY_F25 - GLFW.GLFW_KEY_F1; i++)
+            n[GLFW.GLFW_KEY_F1 + i] = "F" + (i + 1);
+        for (int i = 0; i <= 9; i++)
+            n[GLFW.GLFW_KEY_KP_0 + i] = "Keypad " + i;
+        n[GLFW.GLFW_KEY_KP_DECIMAL] = "Keypad .";
+        n[GLFW.GLFW_KEY_KP_DIVIDE] = "Keypad /";
+        n[GLFW.GLFW_KEY_KP_MULTIPLY] = "Keypad *";
+        n[GLFW.GLFW_KEY_KP_SUBTRACT] = "Keypad -";
+        n[GLFW.GLFW_KEY_KP_ADD] = "Keypad +";
+        n[GLFW.GLFW_KEY_KP_ENTER] = "Keypad Enter";
+        n[GLFW.GLFW_KEY_KP_EQUAL] = "Keypad =";
+        n[GLFW.GLFW_KEY_LEFT_SHIFT] = "Left Shift";
+        n[GLFW.GLFW_KEY_LEFT_CONTROL] = "Left Control";
+        n[GLFW.GLFW_KEY_LEFT_ALT] = "Left Alt";
+        n[GLFW.GLFW_KEY_LEFT_SUPER] = "Left Super";
+        n[GLFW.GLFW_KEY_RIGHT_SHIFT] = "Right Shift";
+        n[GLFW.GLFW_KEY_RIGHT_CONTROL] = "Right Control";
+        n[GLFW.GLFW_KEY_RIGHT_ALT] = "Right Alt";
+        n[GLFW.GLFW_KEY_RIGHT_SUPER] = "Right Super";
+        n[GLFW.GLFW_KEY_MENU] = "Menu";
+        return n;
+    }
+}
@@ -1,41 +1,85 @@
 package com.gnarfodolfus.pixel.input;
 
-import java.util.Arrays;
-import org.lwjgl.glfw.*;
+import java.nio.CharBuffer;
+import java.util.function.IntConsumer;
+import org.lwjgl.glfw.GLFW;
 import org.pixel.commons.DeltaTime;
 import org.pixel.commons.lifecycle.Updatable;
 
 public final class Keyboard implements Updatable {
 
-    private static final int KEYBOARD_SIZE = GLFW.GLFW_KEY_LAST + 1;
+    /**
+     * Text overflow policy keeping the buffered text and discarding new input
+     * while the text buffer is full.
+     */
+    public static final int TEXT_DISCARD_NEW = 0;
+
+    /**
+     * Text overflow policy discarding the oldest buffered text to make room
+     * for new input.
+     */
+    public static final int TEXT_DISCARD_OLD = 1;
+
+    static final int KEYBOARD_SIZE = GLFW.GLFW_KEY_LAST + 1;
+    static final float DEFAULT_REPEAT_DELAY = 0.5f;
+    static final float DEFAULT_REPEAT_RATE = 30f;
     private static final int[] EMPTY = {};
 
-    private final KeyboardInputHandler keyboardHandler = new KeyboardInputHandler();
-    private final KeyboardTextHandler textHandler = new KeyboardTextHandler();
+    final KeyboardInputHandler keyboardHandler;
+    private final TextBuffer textBuffer = new TextBuffer(256);
+    private final InputEvents events;
 
     private final FixedBitSet keys = new FixedBitSet(KEYBOARD_SIZE);
     private final FixedBitSet lastKeys = new FixedBitSet(KEYBOARD_SIZE);
+    private final FixedBitSet keysDown = new FixedBitSet(KEYBOARD_SIZE);
+    private final FixedBitSet keysUp = new FixedBitSet(KEYBOARD_SIZE);
+    private final FixedBitSet keysRepeat = new FixedBitSet(KEYBOARD_SIZE);
 
-    /**
-     * Temporary reusable buffer to retrieve key IDs. Usually no more than 6
-     * pressed keys are tracked anyways, so the size is sufficient.
-     */
-    private final int[] keyBuffer = new int[10];
+    // Physical keys by scancode, independent of the keyboard layout
+    private final FixedBitSet scancodes = new FixedBitSet(KeyNames.SCANCODE_SIZE);
+    private final FixedBitSet lastScancodes = new FixedBitSet(KeyNames.SCANCODE_SIZE);
+    private final FixedBitSet scancodesDown = new FixedBitSet(KeyNames.SCANCODE_SIZE);
+    private final FixedBitSet scancodesUp = new FixedBitSet(KeyNames.SCANCODE_SIZE);
+    private final KeyNames keyNames = new KeyNames();
+
+    // Key repeat, timers only run for held keys with a non-zero rate
+    private final FixedBitSet repeatKeys = new FixedBitSet(KEYBOARD_SIZE);
+    private final float[] repeatDelay = new float[KEYBOARD_SIZE];
+    private final float[] repeatInterval = new float[KEYBOARD_SIZE];
+    private final float[] repeatTimer = new float[KEYBOARD_SIZE];
+    private int mods;
 
+    private InputBackend backend;
     private long windowHandle;
     private boolean readText;
 
-    Keyboard() {
+    Keyboard(InputEventQueue queue, InputEvents events) {
+        this.keyboardHandler = new KeyboardInputHandler(queue);
+        this.events = events;
+        setKeyRepeat(DEFAULT_REPEAT_DELAY, DEFAULT_REPEAT_RATE);
     }
 
-    void init(long windowHandle) {
+    void init(InputBackend backend, long windowHandle) {
+        this.backend = backend;
         this.windowHandle = windowHandle;
-        GLFW.glfwSetKeyCallback(windowHandle, keyboardHandler);
+        backend.setKeyListener(windowHandle, keyboardHandler);
+        keyNames.init(backend);
+        if (readText)
+            backend.setCharListener(windowHandle, textBuffer);
+    }
+
+    /**
+     * Called when the window gains or loses focus.
+     */
+    void focusChanged(boolean focused) {
+        if (focused)
+            keyNames.invalidate(); // the layout may have been switched meanwhile
     }
 
     /**
-     * Clear pressed/released button states and update mouse positions for the
-     * current frame.
+     * Update the key states for the current frame. Pressed/released keys are
+     * taken from the events of this frame, so a key that went down and up
+     * again between two frames is reported as pressed and released.
      *
      * @param dt delta time
      */
@@ -43,6 +87,87 @@ public final class Keyboard implements Updatable {
     public void update(DeltaTime dt) {
         lastKeys.set(keys);
         keys.set(keyboardHandler.keys);
+        lastScancodes.set(scancodes);
+        scancodes.set(keyboardHandler.scancodes);
+        keysDown.clear();
+        keysUp.clear();
+        scancodesDown.clear();
+        scancodesUp.clear();
+        for (int i = 0; i < events.size(); i++) {
+            if (events.getDevice(i) != InputEvents.DEVICE_KEYBOARD)
+                continue;
+            int action = events.getAction(i);
+            int key = events.getCode(i);
+            int scancode = events.getScancode(i);
+            if (action == GLFW.GLFW_PRESS) {
+                if (key >= 0)
+                    keysDown.set(key);
+                if (scancode >= 0)
+                    scancodesDown.set(scancode);
+            } else if (action == GLFW.GLFW_RELEASE) {
+                if (key >= 0)
+                    keysUp.set(key);
+                if (scancode >= 0)
+                    scancodesUp.set(scancode);
+            }
+        }
+        // Events may have been dropped if the queue was full, the state
+        // change is never lost though
+        keysDown.orAndNot(keys, lastKeys);
+        keysUp.orAndNot(lastKeys, keys);
+        scancodesDown.orAndNot(scancodes, lastScancodes);
+        scancodesUp.orAndNot(lastScancodes, scancodes);
+        updateRepeat(dt.getElapsed());
+        updateMods(keyboardHandler.mods);
+    }
+
+    /**
+     * Report the keys that went down this frame and advance the repeat timers
+     * of the other held keys. Only held keys with repeat enabled are visited.
+     */
+    private void updateRepeat(float elapsed) {
+        keysRepeat.set(keysDown);
+        for (int w = 0; w < keys.getWordCount(); w++) {
+            long held = keys.getWord(w) & repeatKeys.getWord(w);
+            long down = keysDown.getWord(w);
+            long repeat = keysRepeat.getWord(w);
+            while (held != 0) {
+                int key = (w << 6) + Long.numberOfTrailingZeros(held);
+                long bit = held & -held;
+                held &= held - 1;
+                if ((down & bit) != 0) {
+                    repeatTimer[key] = repeatDelay[key];
+                    continue;
+                }
+                float timer = repeatTimer[key] - elapsed;
+                if (timer <= 0f) {
+                    repeat |= bit;
+                    timer += repeatInterval[key];
+                    if (timer <= 0f) // long frame, don't catch up
+                        timer = repeatInterval[key];
+                }
+                repeatTimer[key] = timer;
+            }
+            keysRepeat.setWord(w, repeat);
+        }
+    }
+
+    /**
+     * Modifier bits of the held modifier keys, plus the lock bits of the last
+     * key event. GLFW reports the modifiers of a key event as they were before
+     * the event, so they are derived from the key state instead.
+     */
+    private void updateMods(int eventMods) {
+        int m = eventMods & (GLFW.GLFW_MOD_CAPS_LOCK | GLFW.GLFW_MOD_NUM_LOCK);
+        if (keys.get(GLFW.GLFW_KEY_LEFT_SHIFT) || keys.get(GLFW.GLFW_KEY_RIGHT_SHIFT))
+            m |= GLFW.GLFW_MOD_SHIFT;
+        if (keys.get(GLFW.GLFW_KEY_LEFT_CONTROL) || keys.get(GLFW.GLFW_KEY_RIGHT_CONTROL))
+            m |= GLFW.GLFW_MOD_CONTROL;
+        if (keys.get(GLFW.GLFW_KEY_LEFT_ALT) || keys.get(GLFW.GLFW_KEY_RIGHT_ALT))
+            m |= GLFW.GLFW_MOD_ALT;
+        if (keys.get(GLFW.GLFW_KEY_LEFT_SUPER) || keys.get(GLFW.GLFW_KEY_RIGHT_SUPER))
+            m |= GLFW.GLFW_MOD_SUPER;
+        mods = m;
     }
 
     /**
@@ -62,7 +187,7 @@ public final class Keyboard implements Updatable {
      * @return True if the key was pressed, false otherwise.
      */
     public boolean getKeyDown(int button) {
-        return keys.get(button) && !lastKeys.get(button);
+        return keysDown.get(button);
     }
 
     /**
@@ -72,41 +197,305 @@ public final class Keyboard implements Updatable {
      * @return True if the key was released, false otherwise.
      */
     public boolean getKeyUp(int button) {
-        return lastKeys.get(button) && !keys.get(button);
+        return keysUp.get(button);
+    }
+
+    /**
+     * Checks wether the key was pressed this frame or repeated because it is
+     * held. Repeats start after the repeat delay of the key and follow its
+     * repeat rate, see {@link #setKeyRepeat(int, float, float)}. Use it for
+     * menus and text cursors, key repeats of the operating system are
+     * ignored.
+     *
+     * @param button Key ID according to GLFW, e.g. {@link GLFW#GLFW_KEY_A}
+     * @return True if the key was pressed or repeated, false otherwise.
+     */
+    public boolean getKeyRepeat(int button) {
+        return keysRepeat.get(button);
+    }
+
+    /**
+     * Checks the state of a physical key by its platform specific scancode.
+     * Scancodes do not depend on the keyboard layout and also cover keys
+     * unknown to GLFW. They are not part of recordings.
+     *
+     * @param scancode Scancode, e.g. from {@link #getKeyScancode(int)}
+     * @return True if the key is currently pressed, false otherwise.
+     */
+    public boolean getScancode(int scancode) {
+        return scancode >= 0 && scancode < KeyNames.SCANCODE_SIZE && scancodes.get(scancode);
+    }
+
+    /**
+     * Checks wether the physical key was pressed this frame.
+     *
+     * @param scancode Scancode
+     * @return True if the key was pressed, false otherwise.
+     */
+    public boolean getScancodeDown(int scancode) {
+        return scancode >= 0 && scancode < KeyNames.SCANCODE_SIZE && scancodesDown.get(scancode);
+    }
+
+    /**
+     * Checks wether the physical key was released this frame.
+     *
+     * @param scancode Scancode
+     * @return True if the key was released, false otherwise.
+     */
+    public boolean getScancodeUp(int scancode) {
+        return scancode >= 0 && scancode < KeyNames.SCANCODE_SIZE && scancodesUp.get(scancode);
+    }
+
+    /**
+     * Returns the display name of a key for the current keyboard layout, e.g.
+     * "Z" for {@link GLFW#GLFW_KEY_Y} on a German layout, or "Left Shift".
+     * Names are cached, the table is rebuilt when the window regains focus or
+     * after {@link #invalidateKeyNames()}, so this neither calls into GLFW
+     * nor allocates.
+     *
+     * @param button Key ID according to GLFW, e.g. {@link GLFW#GLFW_KEY_A}
+     * @return Key name or {@code null} if the key has no name
+     */
+    public String getKeyName(int button) {
+        return keyNames.getName(button);
+    }
+
+    /**
+     * Returns the scancode of a key from the cached table.
+     *
+     * @param button Key ID according to GLFW, e.g. {@link GLFW#GLFW_KEY_A}
+     * @return Scancode or -1 if the key does not exist on this platform
+     */
+    public int getKeyScancode(int button) {
+        return keyNames.getScancode(button);
+    }
+
+    /**
+     * Returns the key at a scancode from the cached table, e.g. to show the
+     * name of a key bound by scancode.
+     *
+     * @param scancode Scancode
+     * @return Key ID according to GLFW or {@link GLFW#GLFW_KEY_UNKNOWN}
+     */
+    public int getScancodeKey(int scancode) {
+        return keyNames.getKey(scancode);
+    }
+
+    /**
+     * Rebuild the key name and scancode table on the next lookup, e.g. after
+     * the keyboard layout was changed while the window had focus.
+     */
+    public void invalidateKeyNames() {
+        keyNames.invalidate();
+    }
+
+    /**
+     * Returns the modifier bits according to GLFW, e.g.
+     * {@link GLFW#GLFW_MOD_SHIFT}, of the currently held modifier keys. Caps
+     * and num lock are only reported if GLFW reports lock key modifiers.
+     *
+     * @return Modifier bits
+     */
+    public int getMods() {
+        return mods;
+    }
+
+    /**
+     * Checks wether all of the given modifiers are active.
+     *
+     * @param mods Modifier bits according to GLFW, e.g.
+     * {@code GLFW.GLFW_MOD_CONTROL | GLFW.GLFW_MOD_SHIFT}
+     * @return True if all modifiers are active, false otherwise.
+     */
+    public boolean getMods(int mods) {
+        return (this.mods & mods) == mods;
+    }
+
+    /**
+     * Set the repeat delay and rate of all keys. Defaults to 0.5 seconds and
+     * 30 repeats per second.
+     *
+     * @param delay Seconds a key must be held before it repeats
+     * @param rate Repeats per second or zero to disable repeating
+     */
+    public void setKeyRepeat(float delay, float rate) {
+        for (int key = 0; key < KEYBOARD_SIZE; key++)
+            setKeyRepeat(key, delay, rate);
+    }
+
+    /**
+     * Set the repeat delay and rate of a key, e.g. a faster rate for the
+     * arrow keys of a menu.
+     *
+     * @param button Key ID according to GLFW, e.g. {@link GLFW#GLFW_KEY_A}
+     * @param delay Seconds the key must be held before it repeats
+     * @param rate Repeats per second or zero to disable repeating
+     */
+    public void setKeyRepeat(int button, float delay, float rate) {
+        if (delay < 0f)
+            throw new IllegalArgumentException("delay < 0");
+        if (rate < 0f)
+            throw new IllegalArgumentException("rate < 0");
+        repeatDelay[button] = delay;
+        repeatInterval[button] = rate > 0f ? 1f / rate : 0f;
+        repeatKeys.set(button, rate > 0f);
+    }
+
+    public float getKeyRepeatDelay(int button) {
+        return repeatDelay[button];
+    }
+
+    public float getKeyRepeatRate(int button) {
+        return repeatInterval[button] > 0f ? 1f / repeatInterval[button] : 0f;
     }
 
     /**
-     * Returns an array of all Key IDs that are currently pressed.
+     * Returns an array of all Key IDs that are currently pressed. This method
+     * allocates a new array on each call, see {@link #getKeys(int[])} for an
+     * allocation free alternative.
      *
      * @return Array of pressed keys
      */
     public int[] getKeys() {
-        int num = keys.getSetBits(keyBuffer);
-        return (num > 0) ? Arrays.copyOf(keyBuffer, num) : EMPTY;
+        return toArray(keys);
     }
 
     /**
-     * Returns an array of all Key IDs that were pressed this frame.
+     * Returns an array of all Key IDs that were pressed this frame. This
+     * method allocates a new array on each call, see
+     * {@link #getKeysDown(int[])} for an allocation free alternative.
      *
      * @return Array of keys pressed this frame
      */
     public int[] getKeysDown() {
-        if (keys.isEmpty())
-            return EMPTY;
-        int num = lastKeys.xorAnd(keys).getSetBits(keyBuffer);
-        return (num > 0) ? Arrays.copyOf(keyBuffer, num) : EMPTY;
+        return toArray(keysDown);
     }
 
     /**
-     * Returns an array of all Key IDs that were released this frame.
+     * Returns an array of all Key IDs that were released this frame. This
+     * method allocates a new array on each call, see
+     * {@link #getKeysUp(int[])} for an allocation free alternative.
      *
      * @return Array of keys released this frame
      */
     public int[] getKeysUp() {
-        if (lastKeys.isEmpty())
+        return toArray(keysUp);
+    }
+
+    /**
+     * Writes the IDs of all keys that are currently pressed into the given
+     * array. Returns the number of pressed keys, which is larger than the
+     * array length if the result was truncated.
+     *
+     * @param dst Destination array
+     * @return Number of pressed keys
+     */
+    public int getKeys(int[] dst) {
+        return keys.getSetBitsTotal(dst);
+    }
+
+    /**
+     * Writes the IDs of all keys that were pressed this frame into the given
+     * array. Returns the number of pressed keys, which is larger than the
+     * array length if the result was truncated.
+     *
+     * @param dst Destination array
+     * @return Number of keys pressed this frame
+     */
+    public int getKeysDown(int[] dst) {
+        return keysDown.getSetBitsTotal(dst);
+    }
+
+    /**
+     * Returns an array of all Key IDs that were pressed or repeated this
+     * frame. This method allocates a new array on each call, see
+     * {@link #getKeysRepeat(int[])} for an allocation free alternative.
+     *
+     * @return Array of keys pressed or repeated this frame
+     */
+    public int[] getKeysRepeat() {
+        return toArray(keysRepeat);
+    }
+
+    /**
+     * Writes the IDs of all keys that were pressed or repeated this frame into
+     * the given array. Returns the number of keys, which is larger than the
+     * array length if the result was truncated.
+     *
+     * @param dst Destination array
+     * @return Number of keys pressed or repeated this frame
+     */
+    public int getKeysRepeat(int[] dst) {
+        return keysRepeat.getSetBitsTotal(dst);
+    }
+
+    /**
+     * Writes the IDs of all keys that were released this frame into the given
+     * array. Returns the number of released keys, which is larger than the
+     * array length if the result was truncated.
+     *
+     * @param dst Destination array
+     * @return Number of keys released this frame
+     */
+    public int getKeysUp(int[] dst) {
+        return keysUp.getSetBitsTotal(dst);
+    }
+
+    /**
+     * Calls the visitor with the ID of each key that is currently pressed.
+     *
+     * @param visitor Key ID visitor
+     */
+    public void getKeys(IntConsumer visitor) {
+        keys.forEachSetBit(visitor);
+    }
+
+    /**
+     * Calls the visitor with the ID of each key that was pressed this frame.
+     *
+     * @param visitor Key ID visitor
+     */
+    public void getKeysDown(IntConsumer visitor) {
+        keysDown.forEachSetBit(visitor);
+    }
+
+    /**
+     * Calls the visitor with the ID of each key that was released this frame.
+     *
+     * @param visitor Key ID visitor
+     */
+    public void getKeysUp(IntConsumer visitor) {
+        keysUp.forEachSetBit(visitor);
+    }
+
+    private static int[] toArray(FixedBitSet bitset) {
+        int num = bitset.cardinality();
+        if (num == 0)
             return EMPTY;
-        int num = keys.xorAnd(lastKeys).getSetBits(keyBuffer);
-        return (num > 0) ? Arrays.copyOf(keyBuffer, num) : EMPTY;
+        int[] result = new int[num];
+        bitset.getSetBits(result);
+        return result;
+    }
+
+    void replay(FixedBitSet keys, FixedBitSet down, FixedBitSet up, float elapsed) {
+        lastKeys.set(this.keys);
+        this.keys.set(keys);
+        keysDown.set(down);
+        keysUp.set(up);
+        updateRepeat(elapsed);
+        updateMods(mods);
+    }
+
+    FixedBitSet getKeyBits() {
+        return keys;
+    }
+
+    FixedBitSet getKeyDownBits() {
+        return keysDown;
+    }
+
+    FixedBitSet getKeyUpBits() {
+        return keysUp;
     }
 
     /**
@@ -122,10 +511,10 @@ public final class Keyboard implements Updatable {
             throw new IllegalStateException("Window not initialized");
 
         if (readTextInput) {
-            GLFW.glfwSetCharCallback(windowHandle, textHandler);
+            backend.setCharListener(windowHandle, textBuffer);
         } else {
-            textHandler.consume(); // clear
-            GLFW.glfwSetCharCallback(windowHandle, null);
+            textBuffer.clear();
+            backend.setCharListener(windowHandle, null);
         }
         readText = readTextInput;
     }
@@ -145,51 +534,122 @@ public final class Keyboard implements Updatable {
      * text input is disabled and this method always returns an empty string. To
      * enable text input call {@code setReadText(true)}. It is recommended to
      * disable text input when it is not used any more. Otherwise the buffer
-     * will fill until {@code readText()} is called.
+     * fills up until {@code readText()} is called and further input is handled
+     * according to the {@link #setTextOverflow(int) overflow policy}.
      *
      * @return unicode text input since the last {@code readText()} call or
      * empty string if there was no input
      */
     public String readText() {
-        return textHandler.consume();
+        return textBuffer.drainString();
     }
 
-    private static class KeyboardInputHandler extends GLFWKeyCallback {
+    /**
+     * <b>Consumes</b> text input like {@link #readText()}, but returns a
+     * reusable char sequence instead of a new string. The sequence is only
+     * valid until the next call.
+     *
+     * @return unicode text input since the last call
+     */
+    public CharSequence readTextView() {
+        return textBuffer.drainView();
+    }
 
-        private final FixedBitSet keys = new FixedBitSet(KEYBOARD_SIZE);
+    /**
+     * <b>Consumes</b> up to {@code dst.length} codepoints of text input and
+     * writes them to the array. Remaining input is kept for the next call.
+     *
+     * @param dst Array receiving the codepoints
+     * @return Number of codepoints written
+     */
+    public int readText(int[] dst) {
+        return textBuffer.drain(dst, 0, dst.length);
+    }
 
-        @Override
-        public void invoke(long window, int key, int scanCode, int action, int mods) {
-            if (key >= 0 && key < KEYBOARD_SIZE) {
-                if (action == 0) { // key released, clear flag
-                    keys.clear(key);
-                } else { // key pressed, set flag
-                    keys.set(key);
-                }
-            }
-        }
+    /**
+     * <b>Consumes</b> as much text input as fits into the buffer, starting at
+     * its position. A codepoint that needs two chars is never split.
+     * Remaining input is kept for the next call.
+     *
+     * @param dst Buffer receiving the chars
+     * @return Number of chars written
+     */
+    public int readText(CharBuffer dst) {
+        return textBuffer.drain(dst);
     }
 
-    private static class KeyboardTextHandler extends GLFWCharCallback {
+    /**
+     * Returns the number of buffered codepoints.
+     *
+     * @return Number of codepoints that can be read.
+     */
+    public int getTextLength() {
+        return textBuffer.size();
+    }
 
-        private boolean changed;
-        private final StringBuilder text = new StringBuilder();
+    /**
+     * Set the number of codepoints the text buffer can hold. Buffered text is
+     * discarded.
+     *
+     * @param capacity Capacity in codepoints, must be a power of two
+     */
+    public void setTextCapacity(int capacity) {
+        textBuffer.setCapacity(capacity);
+    }
 
-        public String consume() {
-            if (changed) {
-                String value = text.toString();
-                text.setLength(0);
-                changed = false;
-                return value;
-            } else {
-                return "";
-            }
+    public int getTextCapacity() {
+        return textBuffer.getCapacity();
+    }
+
+    /**
+     * Set what happens to text input while the text buffer is full.
+     *
+     * @param policy Either {@link #TEXT_DISCARD_NEW} (default) or
+     * {@link #TEXT_DISCARD_OLD}
+     */
+    public void setTextOverflow(int policy) {
+        textBuffer.setOverflow(policy);
+    }
+
+    public int getTextOverflow() {
+        return textBuffer.getOverflow();
+    }
+
+    /**
+     * Returns the number of codepoints discarded because the text buffer was
+     * full.
+     *
+     * @return Number of discarded codepoints.
+     */
+    public long getTextDropped() {
+        return textBuffer.getDropped();
+    }
+
+    static class KeyboardInputHandler implements InputBackend.KeyListener {
+
+        private final FixedBitSet keys = new FixedBitSet(KEYBOARD_SIZE);
+        private final FixedBitSet scancodes = new FixedBitSet(KeyNames.SCANCODE_SIZE);
+        private final InputEventQueue queue;
+        private int mods;
+
+        KeyboardInputHandler(InputEventQueue queue) {
+            this.queue = queue;
         }
 
         @Override
-        public void invoke(long window, int codepoint) {
-            changed = true;
-            text.appendCodePoint(codepoint);
+        public void onKey(int key, int scanCode, int action, int mods) {
+            this.mods = mods;
+            if (action == GLFW.GLFW_REPEAT)
+                return; // repeats are generated by Keyboard.update
+            boolean known = key >= 0 && key < KEYBOARD_SIZE;
+            boolean physical = scanCode >= 0 && scanCode < KeyNames.SCANCODE_SIZE;
+            if (known)
+                keys.set(key, action != GLFW.GLFW_RELEASE);
+            if (physical)
+                scancodes.set(scanCode, action != GLFW.GLFW_RELEASE);
+            if (known || physical)
+                queue.offer(InputEvents.DEVICE_KEYBOARD, known ? key : GLFW.GLFW_KEY_UNKNOWN,
+                        physical ? scanCode : -1, action, mods, System.nanoTime());
         }
     }
 }
@@ -0,0 +1,145 @@
+package com.gnarfodolfus.pixel.input;
+
+/**
+ * Histogram of durations in nanoseconds with a fixed set of buckets. Each
+ * power of two is split into 8 buckets, so a recorded value is off by at most
+ * 12.5% and recording is a few bit operations on a preallocated array.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    static final int BUCKETS = (64 - SUB_BITS + 1) << SUB_BITS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long max;
+
+    /**
+     * Add a duration.
+     *
+     * @param nanos Duration in nanoseconds, negative values are counted as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0L, nanos);
+        counts[bucket(value)]++;
+        count++;
+        sum += value;
+        if (value > max)
+            max = value;
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return ((shift + 1) << SUB_BITS) | (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Returns the smallest value of the bucket.
+     *
+     * @param bucket Bucket index
+     * @return Lower bound in nanoseconds
+     */
+    public static long getBucketLowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int shift = (bucket >> SUB_BITS) - 1;
+        return (long) (SUB_BUCKETS | (bucket & (SUB_BUCKETS - 1))) << shift;
+    }
+
+    /**
+     * Returns the largest value of the bucket.
+     *
+     * @param bucket Bucket index
+     * @return Upper bound in nanoseconds
+     */
+    public static long getBucketUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int shift = (bucket >> SUB_BITS) - 1;
+        return getBucketLowerBound(bucket) + (1L << shift) - 1;
+    }
+
+    public int getBucketCount() {
+        return BUCKETS;
+    }
+
+    /**
+     * Returns the number of values recorded in the bucket.
+     *
+     * @param bucket Bucket index
+     * @return Number of values
+     */
+    public long getBucket(int bucket) {
+        return counts[bucket];
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the mean of all recorded values.
+     *
+     * @return Mean in nanoseconds or zero if nothing was recorded
+     */
+    public double getMean() {
+        return count > 0 ? (double) sum / count : 0.0;
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded
+     * values fall, e.g. 99 for the 99th percentile. The result is the upper
+     * bound of the bucket, but never more than the largest recorded value.
+     *
+     * @param percentile Percentile in [0, 100]
+     * @return Value in nanoseconds or zero if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0.0 || percentile > 100.0)
+            throw new IllegalArgumentException("percentile must be in [0, 100]");
+        if (count == 0)
+            return 0L;
+        long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.min(getBucketUpperBound(i), max);
+        }
+        return max;
+    }
+
+    /**
+     * Copy the recorded values of another histogram into this one.
+     *
+     * @param src Source histogram
+     */
+    public void set(LatencyHistogram src) {
+        System.arraycopy(src.counts, 0, counts, 0, BUCKETS);
+        count = src.count;
+        sum = src.sum;
+        max = src.max;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++)
+            counts[i] = 0;
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.0fns p50=%dns p99=%dns max=%dns",
+                count, getMean(), getPercentile(50), getPercentile(99), max);
+    }
+}
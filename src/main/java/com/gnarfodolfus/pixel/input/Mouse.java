@@ -1,47 +1,108 @@
 package com.gnarfodolfus.pixel.input;
 
-import org.lwjgl.glfw.*;
+import org.lwjgl.glfw.GLFW;
 import org.pixel.commons.DeltaTime;
 import org.pixel.commons.lifecycle.Updatable;
 import org.pixel.math.Vector2;
 
 public final class Mouse implements Updatable {
 
-    private final CursorPositionHandler positionHandler = new CursorPositionHandler();
-    private final MouseButtonHandler buttonHandler = new MouseButtonHandler();
-    private final MouseScrollHandler scrollHandler = new MouseScrollHandler();
+    final CursorPositionHandler positionHandler = new CursorPositionHandler();
+    final MouseButtonHandler buttonHandler;
+    final MouseScrollHandler scrollHandler = new MouseScrollHandler();
 
     private final Vector2 position = new Vector2();
-    private final Vector2 lastPosition = new Vector2();
+    private final Vector2 movement = new Vector2();
+    private double positionX;
+    private double positionY;
+    private double motionX;
+    private double motionY;
 
     private final Vector2 scroll = new Vector2();
 
+    private final InputEvents events;
+    private final MouseGestures gestures = new MouseGestures();
+
+    private InputBackend backend;
+    private long windowHandle;
+    private boolean cursorDisabled;
+    private boolean rawMotion;
+
     private int buttons;
     private int lastButtons;
+    private int buttonsDown;
+    private int buttonsUp;
 
-    Mouse() {
+    Mouse(InputEventQueue queue, InputEvents events) {
+        this.buttonHandler = new MouseButtonHandler(queue);
+        this.events = events;
     }
 
-    void init(long windowHandle) {
-        GLFW.glfwSetCursorPosCallback(windowHandle, positionHandler);
-        GLFW.glfwSetMouseButtonCallback(windowHandle, buttonHandler);
-        GLFW.glfwSetScrollCallback(windowHandle, scrollHandler);
+    void init(InputBackend backend, long windowHandle) {
+        this.backend = backend;
+        this.windowHandle = windowHandle;
+        backend.setCursorPosListener(windowHandle, positionHandler);
+        backend.setMouseButtonListener(windowHandle, buttonHandler);
+        backend.setScrollListener(windowHandle, scrollHandler);
+        positionHandler.resetMotion();
+        if (cursorDisabled)
+            backend.setCursorDisabled(windowHandle, true);
+        if (rawMotion)
+            rawMotion = backend.setRawMouseMotion(windowHandle, true);
     }
 
     /**
      * Clear pressed/released button states and update mouse positions for the
-     * current frame.
+     * current frame. Pressed/released buttons are taken from the events of
+     * this frame, so a click within a single frame is not lost. The movement
+     * is the cursor motion of the frame in double precision.
      *
      * @param dt delta time
      */
     @Override
     public void update(DeltaTime dt) {
-        lastPosition.set(position);
-        position.set(positionHandler.position);
+        positionX = positionHandler.x;
+        positionY = positionHandler.y;
+        position.set((float) positionX, (float) positionY);
+        motionX = positionHandler.motionX;
+        motionY = positionHandler.motionY;
+        positionHandler.motionX = 0.0;
+        positionHandler.motionY = 0.0;
+        movement.set((float) motionX, (float) motionY);
         scroll.set(scrollHandler.scroll);
         scrollHandler.scroll.set(0f, 0f);
         lastButtons = buttons;
         buttons = buttonHandler.state;
+        int down = 0;
+        int up = 0;
+        for (int i = 0; i < events.size(); i++) {
+            if (events.getDevice(i) != InputEvents.DEVICE_MOUSE)
+                continue;
+            int action = events.getAction(i);
+            if (action == GLFW.GLFW_PRESS)
+                down |= 1 << events.getCode(i);
+            else if (action == GLFW.GLFW_RELEASE)
+                up |= 1 << events.getCode(i);
+        }
+        // Events may have been dropped if the queue was full
+        buttonsDown = down | (buttons & ~lastButtons);
+        buttonsUp = up | (lastButtons & ~buttons);
+        gestures.update(dt.getElapsed(), position.getX(), position.getY(), buttons, buttonsDown, buttonsUp);
+    }
+
+    void replay(float x, float y, float motionX, float motionY, float scrollX, float scrollY, int buttons, int down, int up, float elapsed) {
+        positionX = x;
+        positionY = y;
+        position.set(x, y);
+        this.motionX = motionX;
+        this.motionY = motionY;
+        movement.set(motionX, motionY);
+        scroll.set(scrollX, scrollY);
+        lastButtons = this.buttons;
+        this.buttons = buttons;
+        buttonsDown = down;
+        buttonsUp = up;
+        gestures.update(elapsed, x, y, buttons, down, up);
     }
 
     /**
@@ -63,7 +124,7 @@ public final class Mouse implements Updatable {
      * @return True if the mouse button was pressed, false otherwise.
      */
     public boolean getButtonDown(int button) {
-        return (buttons & (1 << button)) > (lastButtons & (1 << button));
+        return (buttonsDown & (1 << button)) != 0;
     }
 
     /**
@@ -74,7 +135,7 @@ public final class Mouse implements Updatable {
      * @return True if the mouse button was released, false otherwise.
      */
     public boolean getButtonUp(int button) {
-        return (buttons & (1 << button)) < (lastButtons & (1 << button));
+        return (buttonsUp & (1 << button)) != 0;
     }
 
     /**
@@ -94,7 +155,7 @@ public final class Mouse implements Updatable {
      * @return Bit set of pressed buttons in this frame.
      */
     public int getButtonsDown() {
-        return buttons & (buttons ^ lastButtons);
+        return buttonsDown;
     }
 
     /**
@@ -104,7 +165,161 @@ public final class Mouse implements Updatable {
      * @return Bit set of released buttons in this frame.
      */
     public int getButtonsUp() {
-        return lastButtons & (buttons ^ lastButtons);
+        return buttonsUp;
+    }
+
+    /**
+     * Checks whether the button was clicked this frame, i.e. released without
+     * dragging or long pressing it.
+     *
+     * @param button Button ID according to GLFW, e.g.
+     * {@link GLFW#GLFW_MOUSE_BUTTON_1}
+     * @return True if the button was clicked, false otherwise.
+     */
+    public boolean isClicked(int button) {
+        return (gestures.getClicked() & (1 << button)) != 0;
+    }
+
+    /**
+     * Returns the number of consecutive clicks of the button, e.g. 2 for a
+     * double click. The count is updated when the button is pressed, so it
+     * can be checked when the press or the click is reported.
+     *
+     * @param button Button ID according to GLFW, e.g.
+     * {@link GLFW#GLFW_MOUSE_BUTTON_1}
+     * @return Number of consecutive clicks.
+     */
+    public int getClickCount(int button) {
+        return gestures.getClickCount(button);
+    }
+
+    /**
+     * Checks whether the button is held and the cursor moved beyond the
+     * {@link #setDragThreshold(float) drag threshold} since it was pressed.
+     *
+     * @param button Button ID according to GLFW, e.g.
+     * {@link GLFW#GLFW_MOUSE_BUTTON_1}
+     * @return True if the button is dragging, false otherwise.
+     */
+    public boolean isDragging(int button) {
+        return (gestures.getDragging() & (1 << button)) != 0;
+    }
+
+    /**
+     * Checks whether a drag with the button started this frame.
+     *
+     * @param button Button ID according to GLFW, e.g.
+     * {@link GLFW#GLFW_MOUSE_BUTTON_1}
+     * @return True if the drag started, false otherwise.
+     */
+    public boolean isDragStarted(int button) {
+        return (gestures.getDragStarted() & (1 << button)) != 0;
+    }
+
+    /**
+     * Checks whether a drag with the button ended this frame.
+     *
+     * @param button Button ID according to GLFW, e.g.
+     * {@link GLFW#GLFW_MOUSE_BUTTON_1}
+     * @return True if the drag ended, false otherwise.
+     */
+    public boolean isDragEnded(int button) {
+        return (gestures.getDragEnded() & (1 << button)) != 0;
+    }
+
+    /**
+     * Checks whether the button is held for the
+     * {@link #setLongPressTime(double) long press time} without dragging.
+     *
+     * @param button Button ID according to GLFW, e.g.
+     * {@link GLFW#GLFW_MOUSE_BUTTON_1}
+     * @return True if the button is long pressed, false otherwise.
+     */
+    public boolean isLongPressing(int button) {
+        return (gestures.getLongPressing() & (1 << button)) != 0;
+    }
+
+    /**
+     * Checks whether a long press of the button was recognized this frame.
+     *
+     * @param button Button ID according to GLFW, e.g.
+     * {@link GLFW#GLFW_MOUSE_BUTTON_1}
+     * @return True if the long press started, false otherwise.
+     */
+    public boolean isLongPressed(int button) {
+        return (gestures.getLongPressed() & (1 << button)) != 0;
+    }
+
+    /**
+     * Get the position where the button was last pressed, e.g. the start of
+     * a drag.
+     *
+     * @param button Button ID according to GLFW, e.g.
+     * {@link GLFW#GLFW_MOUSE_BUTTON_1}
+     * @return The x position of the last press.
+     */
+    public float getPressX(int button) {
+        return gestures.getPressX(button);
+    }
+
+    public float getPressY(int button) {
+        return gestures.getPressY(button);
+    }
+
+    /**
+     * Set the maximum time between two clicks to count them as consecutive
+     * clicks. Default is 0.5 seconds.
+     *
+     * @param seconds Click time in seconds
+     */
+    public void setClickTime(double seconds) {
+        gestures.setClickTime(seconds);
+    }
+
+    public double getClickTime() {
+        return gestures.getClickTime();
+    }
+
+    /**
+     * Set the maximum distance between two clicks to count them as
+     * consecutive clicks. Default is 4 pixels.
+     *
+     * @param distance Click distance in pixels
+     */
+    public void setClickDistance(float distance) {
+        gestures.setClickDistance(distance);
+    }
+
+    public float getClickDistance() {
+        return gestures.getClickDistance();
+    }
+
+    /**
+     * Set the distance the cursor has to move with a held button to start a
+     * drag. Default is 4 pixels.
+     *
+     * @param distance Drag threshold in pixels
+     */
+    public void setDragThreshold(float distance) {
+        gestures.setDragThreshold(distance);
+    }
+
+    public float getDragThreshold() {
+        return gestures.getDragThreshold();
+    }
+
+    /**
+     * Set the time a button has to be held without dragging to count as a
+     * long press. Default is 0.8 seconds.
+     *
+     * @param seconds Long press time in seconds
+     */
+    public void setLongPressTime(double seconds) {
+        gestures.setLongPressTime(seconds);
+    }
+
+    public double getLongPressTime() {
+        return gestures.getLongPressTime();
     }
 
     /**
@@ -117,13 +332,112 @@ public final class Mouse implements Updatable {
     }
 
     /**
-     * Get the difference of the mouse position between the last frame and the
-     * current frame.
+     * Get the current mouse position with full precision.
+     *
+     * @return The current x position.
+     */
+    public double getPositionX() {
+        return positionX;
+    }
+
+    public double getPositionY() {
+        return positionY;
+    }
+
+    /**
+     * Get the mouse movement since the last frame, the difference of the
+     * cursor positions tracked in double precision. The first cursor event
+     * after the mouse was initialized, the window regained focus or the
+     * cursor mode changed only sets the position, so the cursor jumping there
+     * is not reported as movement. Returns a new vector, use
+     * {@link #getMovement(Vector2)} or {@link #getMovementX()} and
+     * {@link #getMovementY()} to avoid the allocation.
      *
      * @return The mouse offset since the last frame.
      */
     public Vector2 getMovement() {
-        return Vector2.subtract(position, lastPosition);
+        return new Vector2(movement.getX(), movement.getY());
+    }
+
+    /**
+     * Copy the mouse movement since the last frame into the given vector.
+     *
+     * @param out Vector receiving the movement
+     * @return The given vector
+     */
+    public Vector2 getMovement(Vector2 out) {
+        out.set(movement);
+        return out;
+    }
+
+    /**
+     * Get the horizontal mouse movement since the last frame, accumulated in
+     * double precision.
+     *
+     * @return The horizontal offset since the last frame.
+     */
+    public double getMovementX() {
+        return motionX;
+    }
+
+    /**
+     * Get the vertical mouse movement since the last frame, accumulated in
+     * double precision.
+     *
+     * @return The vertical offset since the last frame.
+     */
+    public double getMovementY() {
+        return motionY;
+    }
+
+    /**
+     * Hide the cursor and lock it to the window, e.g. for first person camera
+     * controls. The cursor position is no longer limited to the window and
+     * {@link #getMovement()} reports the motion of the mouse.
+     *
+     * @param disabled Disable the cursor
+     */
+    public void setCursorDisabled(boolean disabled) {
+        if (windowHandle == 0)
+            throw new IllegalStateException("Window not initialized");
+        if (disabled == cursorDisabled)
+            return;
+        backend.setCursorDisabled(windowHandle, disabled);
+        // The cursor position jumps when the mode changes
+        positionHandler.resetMotion();
+        cursorDisabled = disabled;
+    }
+
+    /**
+     * Called when the window gains or loses focus. The cursor may be
+     * anywhere when the window regains focus.
+     */
+    void focusChanged(boolean focused) {
+        positionHandler.resetMotion();
+    }
+
+    public boolean isCursorDisabled() {
+        return cursorDisabled;
+    }
+
+    /**
+     * Enable or disable raw mouse motion, which is not scaled or accelerated
+     * by the operating system. Raw motion only applies while the cursor is
+     * {@link #setCursorDisabled(boolean) disabled}.
+     *
+     * @param enabled Enable raw motion
+     * @return True if raw motion is supported, false otherwise.
+     */
+    public boolean setRawMotion(boolean enabled) {
+        if (windowHandle == 0)
+            throw new IllegalStateException("Window not initialized");
+        boolean supported = backend.setRawMouseMotion(windowHandle, enabled);
+        rawMotion = enabled && supported;
+        return supported;
+    }
+
+    public boolean isRawMotion() {
+        return rawMotion;
     }
 
     /**
@@ -136,40 +450,65 @@ public final class Mouse implements Updatable {
         return scroll;
     }
 
-    private static class CursorPositionHandler extends GLFWCursorPosCallback {
+    static class CursorPositionHandler implements InputBackend.CursorPosListener {
 
-        private final Vector2 position = new Vector2();
+        private double x;
+        private double y;
+        private double motionX;
+        private double motionY;
+        private boolean hasPosition;
 
         @Override
-        public void invoke(long window, double x, double y) {
-            position.set((float) x, (float) y);
+        public void onCursorPos(double x, double y) {
+            // Motion is tracked in double precision, the first event after a
+            // reset only sets the position without a jump from the last one
+            if (hasPosition) {
+                motionX += x - this.x;
+                motionY += y - this.y;
+            }
+            this.x = x;
+            this.y = y;
+            hasPosition = true;
+        }
+
+        /**
+         * Start over with the next event, without motion to the last position.
+         */
+        void resetMotion() {
+            hasPosition = false;
         }
     }
 
-    private static class MouseScrollHandler extends GLFWScrollCallback {
+    static class MouseScrollHandler implements InputBackend.ScrollListener {
 
         private final Vector2 scroll = new Vector2();
 
         @Override
-        public void invoke(long window, double xoffset, double yoffset) {
+        public void onScroll(double xoffset, double yoffset) {
             // Unusual, but there may be more than one event per frame, so we
             // add up all offsets and clear the delta value in the update loop
             scroll.add((float) xoffset, (float) yoffset);
         }
     }
 
-    private static class MouseButtonHandler extends GLFWMouseButtonCallback {
+    static class MouseButtonHandler implements InputBackend.MouseButtonListener {
 
+        private final InputEventQueue queue;
         private int state = 0;
 
+        MouseButtonHandler(InputEventQueue queue) {
+            this.queue = queue;
+        }
+
         @Override
-        public void invoke(long window, int button, int action, int mods) {
+        public void onMouseButton(int button, int action, int mods) {
             if (button >= 0 && button < 32) {
                 if (action == 0) { // button released, clear flag
                     state &= ~(1 << button);
                 } else { // button pressed, set flag
                     state |= 1 << button;
                 }
+                queue.offer(InputEvents.DEVICE_MOUSE, button, -1, action, mods, System.nanoTime());
             }
         }
     }
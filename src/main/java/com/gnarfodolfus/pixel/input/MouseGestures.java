@@ -0,0 +1,197 @@
+package com.gnarfodolfus.pixel.input;
+
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Click, drag and long press detection per mouse button, updated once per
+ * frame from the button and position state of {@link Mouse}. Results are
+ * kept in bit masks with one bit per button, so queries cost a single AND.
+ *
+ * <p>
+ * A click is a press and release that neither became a drag nor a long
+ * press. Presses within the click time and distance of the previous click
+ * continue its click count, e.g. 2 for a double click. A press becomes a drag
+ * when the cursor moves beyond the drag threshold and a long press when it is
+ * held for the long press time without dragging.
+ */
+final class MouseGestures {
+
+    static final int BUTTONS = GLFW.GLFW_MOUSE_BUTTON_LAST + 1;
+
+    private double clickTime = 0.5;
+    private float clickDistance = 4f;
+    private float dragThreshold = 4f;
+    private double longPressTime = 0.8;
+
+    private double time;
+    private final double[] pressTime = new double[BUTTONS];
+    private final float[] pressX = new float[BUTTONS];
+    private final float[] pressY = new float[BUTTONS];
+    private final double[] lastClickTime = new double[BUTTONS];
+    private final float[] lastClickX = new float[BUTTONS];
+    private final float[] lastClickY = new float[BUTTONS];
+    private final int[] clickCount = new int[BUTTONS];
+
+    private int clicked;
+    private int dragging;
+    private int dragStarted;
+    private int dragEnded;
+    private int longPressing;
+    private int longPressed;
+
+    MouseGestures() {
+        for (int i = 0; i < BUTTONS; i++)
+            lastClickTime[i] = Double.NEGATIVE_INFINITY;
+    }
+
+    void update(float elapsed, float x, float y, int buttons, int down, int up) {
+        time += elapsed;
+        clicked = 0;
+        dragStarted = 0;
+        dragEnded = 0;
+        longPressed = 0;
+        int active = (buttons | down | up | dragging | longPressing) & ((1 << BUTTONS) - 1);
+        while (active != 0) {
+            int button = Integer.numberOfTrailingZeros(active);
+            int bit = 1 << button;
+            active &= active - 1;
+            boolean held = (buttons & bit) != 0;
+            if ((down & bit) != 0 && (up & bit) != 0) {
+                // Went down and up within the frame, the current state tells
+                // which came last
+                if (held) {
+                    release(button, bit);
+                    press(button, x, y);
+                } else {
+                    press(button, x, y);
+                    release(button, bit);
+                }
+            } else if ((down & bit) != 0) {
+                press(button, x, y);
+            } else if ((up & bit) != 0 || !held) {
+                release(button, bit);
+            }
+            if (held)
+                hold(button, bit, x, y);
+        }
+    }
+
+    private void press(int button, float x, float y) {
+        if (time - lastClickTime[button] <= clickTime
+                && distance(x, y, lastClickX[button], lastClickY[button]) <= clickDistance)
+            clickCount[button]++;
+        else
+            clickCount[button] = 1;
+        pressTime[button] = time;
+        pressX[button] = x;
+        pressY[button] = y;
+    }
+
+    private void hold(int button, int bit, float x, float y) {
+        if ((dragging & bit) != 0)
+            return;
+        if (distance(x, y, pressX[button], pressY[button]) >= dragThreshold) {
+            dragging |= bit;
+            dragStarted |= bit;
+            longPressing &= ~bit;
+        } else if ((longPressing & bit) == 0 && time - pressTime[button] >= longPressTime) {
+            longPressing |= bit;
+            longPressed |= bit;
+        }
+    }
+
+    private void release(int button, int bit) {
+        if ((dragging & bit) != 0) {
+            dragEnded |= bit;
+        } else if ((longPressing & bit) == 0) {
+            clicked |= bit;
+            lastClickTime[button] = time;
+            lastClickX[button] = pressX[button];
+            lastClickY[button] = pressY[button];
+        }
+        dragging &= ~bit;
+        longPressing &= ~bit;
+    }
+
+    private static float distance(float x0, float y0, float x1, float y1) {
+        float dx = x1 - x0;
+        float dy = y1 - y0;
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    void setClickTime(double seconds) {
+        if (seconds < 0)
+            throw new IllegalArgumentException("seconds < 0");
+        clickTime = seconds;
+    }
+
+    double getClickTime() {
+        return clickTime;
+    }
+
+    void setClickDistance(float distance) {
+        if (distance < 0)
+            throw new IllegalArgumentException("distance < 0");
+        clickDistance = distance;
+    }
+
+    float getClickDistance() {
+        return clickDistance;
+    }
+
+    void setDragThreshold(float distance) {
+        if (distance < 0)
+            throw new IllegalArgumentException("distance < 0");
+        dragThreshold = distance;
+    }
+
+    float getDragThreshold() {
+        return dragThreshold;
+    }
+
+    void setLongPressTime(double seconds) {
+        if (seconds < 0)
+            throw new IllegalArgumentException("seconds < 0");
+        longPressTime = seconds;
+    }
+
+    double getLongPressTime() {
+        return longPressTime;
+    }
+
+    int getClickCount(int button) {
+        return clickCount[button];
+    }
+
+    float getPressX(int button) {
+        return pressX[button];
+    }
+
+    float getPressY(int button) {
+        return pressY[button];
+    }
+
+    int getClicked() {
+        return clicked;
+    }
+
+    int getDragging() {
+        return dragging;
+    }
+
+    int getDragStarted() {
+        return dragStarted;
+    }
+
+    int getDragEnded() {
+        return dragEnded;
+    }
+
+    int getLongPressing() {
+        return longPressing;
+    }
+
+    int getLongPressed() {
+        return longPressed;
+    }
+}
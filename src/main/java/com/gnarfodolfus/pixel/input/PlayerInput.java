@@ -0,0 +1,120 @@
+package com.gnarfodolfus.pixel.input;
+
+import org.pixel.commons.DeltaTime;
+import org.pixel.ext.ecs.component.GameComponent;
+
+/**
+ * Component with the action state of one controllable game object, written
+ * by the {@link InputSystem} once per frame. The other components of the
+ * object read their actions from here instead of querying the devices:
+ *
+ * <pre>
+ * player.addComponent(system.createInput(p1));
+ * ...
+ * // in a component of the player
+ * PlayerInput input = gameObject.getComponent(PlayerInput.class);
+ * if (input.isPressed(jump)) ...
+ * </pre>
+ */
+public class PlayerInput extends GameComponent {
+
+    private int player;
+    private FixedBitSet held = new FixedBitSet(1);
+    private FixedBitSet pressed = new FixedBitSet(1);
+    private FixedBitSet released = new FixedBitSet(1);
+
+    /**
+     * Creates an input of the player. It is not updated until it is
+     * {@link InputSystem#add(PlayerInput) added} to the system, see
+     * {@link InputSystem#createInput(int)}.
+     *
+     * @param player Player ID of the {@link InputSystem}
+     */
+    public PlayerInput(int player) {
+        this.player = player;
+    }
+
+    /**
+     * Does nothing, the input is written by {@link InputSystem#update}.
+     *
+     * @param delta delta time
+     */
+    @Override
+    public void update(DeltaTime delta) {
+    }
+
+    void apply(ActionMap map) {
+        FixedBitSet mapHeld = map.getHeldBits();
+        if (held.getWordCount() < mapHeld.getWordCount()) {
+            int bits = mapHeld.getWordCount() << 6;
+            held = new FixedBitSet(bits);
+            pressed = new FixedBitSet(bits);
+            released = new FixedBitSet(bits);
+        }
+        copy(held, mapHeld);
+        copy(pressed, map.getPressedBits());
+        copy(released, map.getReleasedBits());
+    }
+
+    private static void copy(FixedBitSet dst, FixedBitSet src) {
+        dst.set(src);
+        // After a switch to a map with fewer actions the words of the
+        // previous map would stay set
+        for (int w = src.getWordCount(); w < dst.getWordCount(); w++)
+            dst.setWord(w, 0L);
+    }
+
+    void clear() {
+        held.clear();
+        pressed.clear();
+        released.clear();
+    }
+
+    /**
+     * Returns the player whose device and bindings drive this input.
+     *
+     * @return Player ID of the {@link InputSystem}
+     */
+    public int getPlayer() {
+        return player;
+    }
+
+    void setPlayer(int player) {
+        this.player = player;
+    }
+
+    /**
+     * Checks wether the action is currently held.
+     *
+     * @param action Action ID of the player's {@link ActionMap}
+     * @return True if the action is held, false otherwise.
+     */
+    public boolean isHeld(int action) {
+        return get(held, action);
+    }
+
+    /**
+     * Checks wether the action was pressed this frame.
+     *
+     * @param action Action ID of the player's {@link ActionMap}
+     * @return True if the action was pressed, false otherwise.
+     */
+    public boolean isPressed(int action) {
+        return get(pressed, action);
+    }
+
+    /**
+     * Checks wether the action was released this frame.
+     *
+     * @param action Action ID of the player's {@link ActionMap}
+     * @return True if the action was released, false otherwise.
+     */
+    public boolean isReleased(int action) {
+        return get(released, action);
+    }
+
+    private static boolean get(FixedBitSet bits, int action) {
+        // Actions defined after the last update are not held yet
+        return action < bits.getWordCount() << 6 && bits.get(action);
+    }
+}
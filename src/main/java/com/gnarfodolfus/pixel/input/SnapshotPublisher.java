@@ -0,0 +1,65 @@
+package com.gnarfodolfus.pixel.input;
+
+import java.lang.invoke.*;
+
+/**
+ * Publishes one {@link InputSnapshot} per frame to other threads with a
+ * sequence lock. The writer makes the sequence odd, captures the frame and
+ * makes it even again. Readers copy the snapshot and retry if the sequence
+ * was odd or changed meanwhile, so neither side takes a lock and a reader
+ * never sees a torn frame. Capturing is skipped until the first read.
+ */
+final class SnapshotPublisher {
+
+    private static final VarHandle SEQUENCE;
+
+    static {
+        try {
+            SEQUENCE = MethodHandles.lookup().findVarHandle(SnapshotPublisher.class, "sequence", long.class);
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    private final InputSnapshot published = new InputSnapshot();
+    @SuppressWarnings("unused") // accessed through SEQUENCE
+    private volatile long sequence;
+    private volatile boolean requested;
+    private long frame;
+
+    /**
+     * Capture the state of the frame. Must only be called by a single thread.
+     */
+    void publish(Keyboard keyboard, Mouse mouse, GamePads pads) {
+        long f = frame++;
+        if (!requested)
+            return;
+        long s = (long) SEQUENCE.getOpaque(this);
+        SEQUENCE.setOpaque(this, s + 1);
+        VarHandle.storeStoreFence();
+        published.capture(f, keyboard, mouse, pads);
+        SEQUENCE.setRelease(this, s + 2);
+    }
+
+    /**
+     * Copy the latest published frame into the given snapshot.
+     */
+    void read(InputSnapshot dst) {
+        if (!requested)
+            requested = true; // nothing published yet, start with the next frame
+        while (true) {
+            long s = (long) SEQUENCE.getAcquire(this);
+            if ((s & 1) == 0) {
+                dst.copy(published);
+                VarHandle.loadLoadFence();
+                if ((long) SEQUENCE.getOpaque(this) == s)
+                    return;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    long getFrame() {
+        return frame;
+    }
+}
@@ -0,0 +1,545 @@
+package com.gnarfodolfus.pixel.input;
+
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Input backend without a window, for servers, tests, benchmarks and bots.
+ * Events can be injected from any number of threads at any time. They are
+ * queued in a preallocated lock-free ring buffer and delivered to the
+ * listeners by {@link #poll()}, i.e. during {@link Input#update}, like GLFW
+ * events would be. Injecting an event does not allocate. If the queue is full
+ * the event is dropped and the inject method returns false. At most
+ * {@link #setMaxEventsPerPoll(int)} events are delivered per poll, the rest
+ * is delivered in the following frames, so bursts do not overflow the per
+ * frame event queue of {@link Input}.
+ *
+ * <pre>
+ * SyntheticInputBackend backend = new SyntheticInputBackend(4096);
+ * Input.init(backend, 1L);
+ * backend.injectKey(1L, GLFW.GLFW_KEY_W, 0, GLFW.GLFW_PRESS, 0);
+ * </pre>
+ */
+public final class SyntheticInputBackend implements InputBackend {
+
+    private static final int KEY = 0;
+    private static final int CHAR = 1;
+    private static final int CURSOR_POS = 2;
+    private static final int MOUSE_BUTTON = 3;
+    private static final int SCROLL = 4;
+    private static final int PAD_CONNECT = 5;
+    private static final int PAD_DISCONNECT = 6;
+    private static final int PAD_BUTTON = 7;
+    private static final int PAD_AXIS = 8;
+    private static final int FOCUS = 9;
+    private static final int JOYSTICK_CONNECT = 10;
+    private static final int JOYSTICK_BUTTON = 11;
+    private static final int JOYSTICK_AXIS = 12;
+    private static final int JOYSTICK_HAT = 13;
+
+    private static final int INTS = 5; // type, a, b, c, d
+    private static final int PADS = GLFW.GLFW_JOYSTICK_LAST + 1;
+    private static final int PAD_BUTTONS = GLFW.GLFW_GAMEPAD_BUTTON_LAST + 1;
+    private static final int PAD_AXES = GLFW.GLFW_GAMEPAD_AXIS_LAST + 1;
+
+    // Bounded multi producer / single consumer queue. Each slot has a
+    // sequence number telling producers and the consumer whose turn it is
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final int[] ints;
+    private final long[] windows;
+    private final double[] doubles;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private long head;
+    private int maxEventsPerPoll = 512;
+
+    // Listeners per window, searched linearly. There are only a few windows
+    // and this avoids boxing the window handle for each event
+    private long[] listenerWindows = new long[4];
+    private Listeners[] listeners = new Listeners[4];
+    private int listenerCount;
+    private JoystickListener joystickListener;
+
+    private final AtomicReferenceArray<String> padNames = new AtomicReferenceArray<>(PADS);
+    private final boolean[] padConnected = new boolean[PADS];
+    private final byte[] padButtons = new byte[PADS * PAD_BUTTONS];
+    private final float[] padAxes = new float[PADS * PAD_AXES];
+
+    // Joysticks, gamepads are joysticks as well. Only touched by poll()
+    private final boolean[] joystickConnected = new boolean[PADS];
+    private final ByteBuffer[] joystickButtons = new ByteBuffer[PADS];
+    private final FloatBuffer[] joystickAxes = new FloatBuffer[PADS];
+    private final ByteBuffer[] joystickHats = new ByteBuffer[PADS];
+    private final AtomicReferenceArray<String> keyNames = new AtomicReferenceArray<>(GLFW.GLFW_KEY_LAST + 1);
+
+    /**
+     * Creates a backend with the given event queue capacity.
+     *
+     * @param capacity Queue capacity, must be a power of two
+     */
+    public SyntheticInputBackend(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("capacity must be a power of two");
+        this.mask = capacity - 1;
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++)
+            sequences.set(i, i);
+        this.ints = new int[capacity * INTS];
+        this.windows = new long[capacity];
+        this.doubles = new double[capacity * 2];
+        for (int key = GLFW.GLFW_KEY_APOSTROPHE; key <= GLFW.GLFW_KEY_GRAVE_ACCENT; key++)
+            keyNames.set(key, usName(key));
+    }
+
+    /**
+     * US layout names of the printable keys, GLFW key codes of these keys
+     * are their ASCII characters.
+     */
+    private static String usName(int key) {
+        if (key >= GLFW.GLFW_KEY_A && key <= GLFW.GLFW_KEY_Z)
+            return String.valueOf((char) (key + 'a' - 'A'));
+        if ((key >= GLFW.GLFW_KEY_0 && key <= GLFW.GLFW_KEY_9) || "',-./;=[\\]`".indexOf(key) >= 0)
+            return String.valueOf((char) key);
+        return null;
+    }
+
+    public boolean injectKey(long window, int key, int scanCode, int action, int mods) {
+        return offer(KEY, window, key, scanCode, action, mods, 0.0, 0.0);
+    }
+
+    public boolean injectChar(long window, int codepoint) {
+        return offer(CHAR, window, codepoint, 0, 0, 0, 0.0, 0.0);
+    }
+
+    public boolean injectCursorPos(long window, double x, double y) {
+        return offer(CURSOR_POS, window, 0, 0, 0, 0, x, y);
+    }
+
+    public boolean injectMouseButton(long window, int button, int action, int mods) {
+        return offer(MOUSE_BUTTON, window, button, action, mods, 0, 0.0, 0.0);
+    }
+
+    public boolean injectScroll(long window, double xoffset, double yoffset) {
+        return offer(SCROLL, window, 0, 0, 0, 0, xoffset, yoffset);
+    }
+
+    /**
+     * Focus or unfocus a window. A window regaining focus rebuilds its key
+     * name table, see {@link Keyboard#getKeyName(int)}.
+     *
+     * @param window Window handle
+     * @param focused Window has focus
+     * @return True if the event was queued, false if the queue was full
+     */
+    public boolean injectFocus(long window, boolean focused) {
+        return offer(FOCUS, window, focused ? 1 : 0, 0, 0, 0, 0.0, 0.0);
+    }
+
+    /**
+     * Change the name of a key to simulate another keyboard layout. Names
+     * default to the printable keys of the US layout. Scancodes are always
+     * equal to the key codes.
+     *
+     * @param key Key according to GLFW
+     * @param name Key name or {@code null} if the key is not printable
+     */
+    public void setKeyName(int key, String name) {
+        keyNames.set(key, name);
+    }
+
+    /**
+     * Connects a virtual gamepad. All buttons are released and all axes are
+     * zero initially.
+     *
+     * @param jid Joystick ID according to GLFW
+     * @param name Gamepad name
+     * @return True if the event was queued, false if the queue was full
+     */
+    public boolean connectGamePad(int jid, String name) {
+        padNames.set(checkPad(jid), name);
+        return offer(PAD_CONNECT, 0L, jid, 0, 0, 0, 0.0, 0.0);
+    }
+
+    /**
+     * Disconnects a virtual gamepad or joystick.
+     *
+     * @param jid Joystick ID according to GLFW
+     * @return True if the event was queued, false if the queue was full
+     */
+    public boolean disconnectGamePad(int jid) {
+        return offer(PAD_DISCONNECT, 0L, checkPad(jid), 0, 0, 0, 0.0, 0.0);
+    }
+
+    public boolean injectGamePadButton(int jid, int button, int action) {
+        if (button < 0 || button >= PAD_BUTTONS)
+            throw new IllegalArgumentException("Invalid button: " + button);
+        return offer(PAD_BUTTON, 0L, checkPad(jid), button, action, 0, 0.0, 0.0);
+    }
+
+    public boolean injectGamePadAxis(int jid, int axis, float value) {
+        if (axis < 0 || axis >= PAD_AXES)
+            throw new IllegalArgumentException("Invalid axis: " + axis);
+        return offer(PAD_AXIS, 0L, checkPad(jid), axis, 0, 0, value, 0.0);
+    }
+
+    /**
+     * Connects a virtual joystick that is not a gamepad, e.g. a flight stick
+     * with many buttons and hats. All buttons are released, all axes are
+     * zero and all hats are centered initially. Disconnect it with
+     * {@link #disconnectGamePad(int)}.
+     *
+     * @param jid Joystick ID according to GLFW
+     * @param name Joystick name
+     * @param buttons Number of buttons
+     * @param axes Number of axes
+     * @param hats Number of hats
+     * @return True if the event was queued, false if the queue was full
+     */
+    public boolean connectJoystick(int jid, String name, int buttons, int axes, int hats) {
+        if (buttons < 0 || axes < 0 || hats < 0)
+            throw new IllegalArgumentException("Negative count");
+        padNames.set(checkPad(jid), name);
+        return offer(JOYSTICK_CONNECT, 0L, jid, buttons, axes, hats, 0.0, 0.0);
+    }
+
+    /**
+     * Press or release a joystick button. Buttons the joystick does not have
+     * are ignored.
+     *
+     * @param jid Joystick ID according to GLFW
+     * @param button Button index
+     * @param action {@link GLFW#GLFW_PRESS} or {@link GLFW#GLFW_RELEASE}
+     * @return True if the event was queued, false if the queue was full
+     */
+    public boolean injectJoystickButton(int jid, int button, int action) {
+        return offer(JOYSTICK_BUTTON, 0L, checkPad(jid), button, action, 0, 0.0, 0.0);
+    }
+
+    public boolean injectJoystickAxis(int jid, int axis, float value) {
+        return offer(JOYSTICK_AXIS, 0L, checkPad(jid), axis, 0, 0, value, 0.0);
+    }
+
+    /**
+     * Set the state of a joystick hat.
+     *
+     * @param jid Joystick ID according to GLFW
+     * @param hat Hat index
+     * @param state Combination of {@link GLFW#GLFW_HAT_UP},
+     * {@link GLFW#GLFW_HAT_RIGHT}, {@link GLFW#GLFW_HAT_DOWN} and
+     * {@link GLFW#GLFW_HAT_LEFT}
+     * @return True if the event was queued, false if the queue was full
+     */
+    public boolean injectJoystickHat(int jid, int hat, int state) {
+        return offer(JOYSTICK_HAT, 0L, checkPad(jid), hat, state, 0, 0.0, 0.0);
+    }
+
+    /**
+     * Sets the maximum number of events delivered by a single
+     * {@link #poll()}. Defaults to 512.
+     *
+     * @param maxEvents Maximum number of events per poll
+     */
+    public void setMaxEventsPerPoll(int maxEvents) {
+        if (maxEvents <= 0)
+            throw new IllegalArgumentException("maxEvents <= 0");
+        this.maxEventsPerPoll = maxEvents;
+    }
+
+    /**
+     * Returns the number of events that were dropped because the queue was
+     * full.
+     *
+     * @return Number of dropped events
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public void poll() {
+        for (int n = 0; n < maxEventsPerPoll; n++) {
+            int slot = (int) head & mask;
+            if (sequences.get(slot) != head + 1)
+                return; // empty or the producer is not done yet
+            int offset = slot * INTS;
+            int type = ints[offset];
+            int a = ints[offset + 1];
+            int b = ints[offset + 2];
+            int c = ints[offset + 3];
+            int d = ints[offset + 4];
+            long window = windows[slot];
+            double x = doubles[slot * 2];
+            double y = doubles[slot * 2 + 1];
+            sequences.lazySet(slot, head + mask + 1); // release the slot
+            head++;
+            dispatch(type, window, a, b, c, d, x, y);
+        }
+    }
+
+    @Override
+    public void setKeyListener(long window, KeyListener listener) {
+        listeners(window).key = listener;
+    }
+
+    @Override
+    public void setCharListener(long window, CharListener listener) {
+        listeners(window).text = listener;
+    }
+
+    @Override
+    public void setCursorPosListener(long window, CursorPosListener listener) {
+        listeners(window).cursor = listener;
+    }
+
+    @Override
+    public void setMouseButtonListener(long window, MouseButtonListener listener) {
+        listeners(window).button = listener;
+    }
+
+    @Override
+    public void setScrollListener(long window, ScrollListener listener) {
+        listeners(window).scroll = listener;
+    }
+
+    @Override
+    public void setFocusListener(long window, FocusListener listener) {
+        listeners(window).focus = listener;
+    }
+
+    @Override
+    public String getKeyName(int key, int scanCode) {
+        if (key == GLFW.GLFW_KEY_UNKNOWN)
+            key = scanCode;
+        return key >= 0 && key <= GLFW.GLFW_KEY_LAST ? keyNames.get(key) : null;
+    }
+
+    @Override
+    public int getKeyScancode(int key) {
+        return key >= 0 && key <= GLFW.GLFW_KEY_LAST ? key : -1;
+    }
+
+    @Override
+    public void setCursorDisabled(long window, boolean disabled) {
+        // There is no cursor, injected positions are used as they are
+    }
+
+    @Override
+    public boolean setRawMouseMotion(long window, boolean enabled) {
+        return true;
+    }
+
+    @Override
+    public void setJoystickListener(JoystickListener listener) {
+        joystickListener = listener;
+    }
+
+    @Override
+    public boolean isGamePad(int jid) {
+        return padConnected[jid];
+    }
+
+    @Override
+    public String getGamePadName(int jid) {
+        return padConnected[jid] ? padNames.get(jid) : null;
+    }
+
+    @Override
+    public boolean getGamePadState(int jid, byte[] buttons, float[] axes) {
+        if (!padConnected[jid])
+            return false;
+        System.arraycopy(padButtons, jid * PAD_BUTTONS, buttons, 0, PAD_BUTTONS);
+        System.arraycopy(padAxes, jid * PAD_AXES, axes, 0, PAD_AXES);
+        return true;
+    }
+
+    @Override
+    public boolean supportsGamePadPolling() {
+        // The states are plain arrays written by poll(), a concurrent read
+        // may mix the values of two polls but never fails
+        return true;
+    }
+
+    @Override
+    public boolean isJoystick(int jid) {
+        return joystickConnected[jid];
+    }
+
+    @Override
+    public String getJoystickName(int jid) {
+        return joystickConnected[jid] ? padNames.get(jid) : null;
+    }
+
+    @Override
+    public ByteBuffer getJoystickButtons(int jid) {
+        return joystickConnected[jid] ? joystickButtons[jid] : null;
+    }
+
+    @Override
+    public FloatBuffer getJoystickAxes(int jid) {
+        return joystickConnected[jid] ? joystickAxes[jid] : null;
+    }
+
+    @Override
+    public ByteBuffer getJoystickHats(int jid) {
+        return joystickConnected[jid] ? joystickHats[jid] : null;
+    }
+
+    private boolean offer(int type, long window, int a, int b, int c, int d, double x, double y) {
+        long pos = tail.get();
+        while (true) {
+            int slot = (int) pos & mask;
+            long diff = sequences.get(slot) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1))
+                    break;
+                pos = tail.get();
+            } else if (diff < 0) { // full
+                dropped.incrementAndGet();
+                return false;
+            } else { // another producer claimed the slot
+                pos = tail.get();
+            }
+        }
+        int slot = (int) pos & mask;
+        int offset = slot * INTS;
+        ints[offset] = type;
+        ints[offset + 1] = a;
+        ints[offset + 2] = b;
+        ints[offset + 3] = c;
+        ints[offset + 4] = d;
+        windows[slot] = window;
+        doubles[slot * 2] = x;
+        doubles[slot * 2 + 1] = y;
+        sequences.lazySet(slot, pos + 1); // publish to the consumer
+        return true;
+    }
+
+    private void dispatch(int type, long window, int a, int b, int c, int d, double x, double y) {
+        switch (type) {
+            case PAD_CONNECT:
+                padConnected[a] = true;
+                Arrays.fill(padButtons, a * PAD_BUTTONS, (a + 1) * PAD_BUTTONS, (byte) 0);
+                Arrays.fill(padAxes, a * PAD_AXES, (a + 1) * PAD_AXES, 0f);
+                connectJoystick(a, PAD_BUTTONS, PAD_AXES, 0);
+                if (joystickListener != null)
+                    joystickListener.onJoystick(a, GLFW.GLFW_CONNECTED);
+                return;
+            case JOYSTICK_CONNECT:
+                padConnected[a] = false;
+                connectJoystick(a, b, c, d);
+                if (joystickListener != null)
+                    joystickListener.onJoystick(a, GLFW.GLFW_CONNECTED);
+                return;
+            case PAD_DISCONNECT:
+                padConnected[a] = false;
+                joystickConnected[a] = false;
+                if (joystickListener != null)
+                    joystickListener.onJoystick(a, GLFW.GLFW_DISCONNECTED);
+                return;
+            case PAD_BUTTON:
+                padButtons[a * PAD_BUTTONS + b] = (byte) (c != GLFW.GLFW_RELEASE ? GLFW.GLFW_PRESS : GLFW.GLFW_RELEASE);
+                setJoystickButton(a, b, c); // the gamepad is a joystick as well
+                return;
+            case PAD_AXIS:
+                padAxes[a * PAD_AXES + b] = (float) x;
+                setJoystickAxis(a, b, (float) x);
+                return;
+            case JOYSTICK_BUTTON:
+                setJoystickButton(a, b, c);
+                return;
+            case JOYSTICK_AXIS:
+                setJoystickAxis(a, b, (float) x);
+                return;
+            case JOYSTICK_HAT:
+                if (joystickConnected[a] && b >= 0 && b < joystickHats[a].capacity())
+                    joystickHats[a].put(b, (byte) c);
+                return;
+        }
+        Listeners l = find(window);
+        if (l == null)
+            return;
+        switch (type) {
+            case KEY:
+                if (l.key != null)
+                    l.key.onKey(a, b, c, d);
+                break;
+            case CHAR:
+                if (l.text != null)
+                    l.text.onChar(a);
+                break;
+            case CURSOR_POS:
+                if (l.cursor != null)
+                    l.cursor.onCursorPos(x, y);
+                break;
+            case MOUSE_BUTTON:
+                if (l.button != null)
+                    l.button.onMouseButton(a, b, c);
+                break;
+            case SCROLL:
+                if (l.scroll != null)
+                    l.scroll.onScroll(x, y);
+                break;
+            case FOCUS:
+                if (l.focus != null)
+                    l.focus.onFocus(a != 0);
+                break;
+        }
+    }
+
+    private void connectJoystick(int jid, int buttons, int axes, int hats) {
+        joystickConnected[jid] = true;
+        joystickButtons[jid] = ByteBuffer.allocateDirect(buttons).order(ByteOrder.nativeOrder());
+        joystickAxes[jid] = ByteBuffer.allocateDirect(axes * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        joystickHats[jid] = ByteBuffer.allocateDirect(hats).order(ByteOrder.nativeOrder());
+    }
+
+    private void setJoystickButton(int jid, int button, int action) {
+        if (joystickConnected[jid] && button >= 0 && button < joystickButtons[jid].capacity())
+            joystickButtons[jid].put(button, (byte) (action != GLFW.GLFW_RELEASE ? GLFW.GLFW_PRESS : GLFW.GLFW_RELEASE));
+    }
+
+    private void setJoystickAxis(int jid, int axis, float value) {
+        if (joystickConnected[jid] && axis >= 0 && axis < joystickAxes[jid].capacity())
+            joystickAxes[jid].put(axis, value);
+    }
+
+    private Listeners find(long window) {
+        for (int i = 0; i < listenerCount; i++)
+            if (listenerWindows[i] == window)
+                return listeners[i];
+        return null;
+    }
+
+    private Listeners listeners(long window) {
+        Listeners l = find(window);
+        if (l == null) {
+            if (listenerCount == listeners.length) {
+                listenerWindows = Arrays.copyOf(listenerWindows, listenerCount * 2);
+                listeners = Arrays.copyOf(listeners, listenerCount * 2);
+            }
+            l = new Listeners();
+            listenerWindows[listenerCount] = window;
+            listeners[listenerCount++] = l;
+        }
+        return l;
+    }
+
+    private static int checkPad(int jid) {
+        if (jid < 0 || jid >= PADS)
+            throw new IllegalArgumentException("Invalid joystick ID: " + jid);
+        return jid;
+    }
+
+    private static class Listeners {
+
+        private KeyListener key;
+        private CharListener text;
+        private CursorPosListener cursor;
+        private MouseButtonListener button;
+        private ScrollListener scroll;
+        private FocusListener focus;
+    }
+}
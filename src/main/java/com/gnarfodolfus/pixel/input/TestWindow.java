@@ -70,11 +70,7 @@ public class TestWindow extends PixelWindow {
 
         var keyboard = Input.getKeyboard();
         for (int key : keyboard.getKeysDown()) {
-            String text;
-            if ((key >= 'A' && key <= 'Z') || (key >= '0' && key <= '9'))
-                text = Character.toString(key);
-            else
-                text = GLFW.glfwGetKeyName(key, 0);
+            String text = keyboard.getKeyName(key);
             if (text == null)
                 text = "Key " + key;
             labels.add(text, mouse.getPosition(), 1f);
@@ -0,0 +1,161 @@
+package com.gnarfodolfus.pixel.input;
+
+import java.nio.CharBuffer;
+
+/**
+ * Fixed capacity ring buffer of unicode codepoints. Text is written by the
+ * char listener and read by the game, both on the thread polling the input
+ * backend, so no synchronization is needed. When the buffer is full the
+ * overflow policy decides whether the new or the oldest codepoints are
+ * discarded.
+ */
+final class TextBuffer implements InputBackend.CharListener {
+
+    private int[] codepoints;
+    private int mask;
+    private int head; // next codepoint to read
+    private int tail; // next codepoint to write
+    private int overflow = Keyboard.TEXT_DISCARD_NEW;
+    private long dropped;
+
+    // Chars of the last drained text, backing the view. Two chars per
+    // codepoint at most, so draining never grows the array
+    private char[] chars;
+    private int charCount;
+    private final View view = new View();
+
+    TextBuffer(int capacity) {
+        setCapacity(capacity);
+    }
+
+    void setCapacity(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("capacity must be a power of two");
+        codepoints = new int[capacity];
+        chars = new char[capacity * 2];
+        charCount = 0;
+        mask = capacity - 1;
+        head = 0;
+        tail = 0;
+    }
+
+    int getCapacity() {
+        return codepoints.length;
+    }
+
+    void setOverflow(int overflow) {
+        if (overflow != Keyboard.TEXT_DISCARD_NEW && overflow != Keyboard.TEXT_DISCARD_OLD)
+            throw new IllegalArgumentException("Invalid overflow policy: " + overflow);
+        this.overflow = overflow;
+    }
+
+    int getOverflow() {
+        return overflow;
+    }
+
+    long getDropped() {
+        return dropped;
+    }
+
+    @Override
+    public void onChar(int codepoint) {
+        if (!Character.isValidCodePoint(codepoint))
+            return;
+        if (tail - head == codepoints.length) {
+            dropped++;
+            if (overflow == Keyboard.TEXT_DISCARD_NEW)
+                return;
+            head++;
+        }
+        codepoints[tail++ & mask] = codepoint;
+    }
+
+    int size() {
+        return tail - head;
+    }
+
+    void clear() {
+        head = tail;
+    }
+
+    /**
+     * Remove up to {@code length} codepoints and write them to the array.
+     */
+    int drain(int[] dst, int offset, int length) {
+        int count = Math.min(length, tail - head);
+        for (int i = 0; i < count; i++)
+            dst[offset + i] = codepoints[head++ & mask];
+        return count;
+    }
+
+    /**
+     * Remove as many codepoints as fit into the buffer, a surrogate pair is
+     * never split. Returns the number of chars written.
+     */
+    int drain(CharBuffer dst) {
+        int start = dst.position();
+        while (head != tail) {
+            int codepoint = codepoints[head & mask];
+            if (dst.remaining() < Character.charCount(codepoint))
+                break;
+            if (Character.isBmpCodePoint(codepoint)) {
+                dst.put((char) codepoint);
+            } else {
+                dst.put(Character.highSurrogate(codepoint));
+                dst.put(Character.lowSurrogate(codepoint));
+            }
+            head++;
+        }
+        return dst.position() - start;
+    }
+
+    /**
+     * Remove all codepoints and return them as a reusable char sequence which
+     * is valid until the next call.
+     */
+    CharSequence drainView() {
+        charCount = 0;
+        while (head != tail) {
+            int codepoint = codepoints[head++ & mask];
+            charCount += Character.toChars(codepoint, chars, charCount);
+        }
+        return view;
+    }
+
+    String drainString() {
+        if (head == tail)
+            return "";
+        drainView();
+        return new String(chars, 0, charCount);
+    }
+
+    /**
+     * View of the last drained chars.
+     */
+    private final class View implements CharSequence {
+
+        @Override
+        public int length() {
+            return charCount;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= charCount)
+                throw new IndexOutOfBoundsException(index);
+            return chars[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > charCount || start > end)
+                throw new IndexOutOfBoundsException();
+            return new String(chars, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, charCount);
+        }
+    }
+}
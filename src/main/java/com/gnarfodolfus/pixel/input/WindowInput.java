@@ -0,0 +1,140 @@
+package com.gnarfodolfus.pixel.input;
+
+import org.pixel.commons.DeltaTime;
+import org.pixel.commons.lifecycle.Disposable;
+import org.pixel.commons.lifecycle.Updatable;
+
+/**
+ * Keyboard and mouse input of a single window. {@link Input} keeps one
+ * instance for the main window, additional windows get their own instance:
+ *
+ * <pre>
+ * WindowInput toolInput = new WindowInput(toolWindow.getWindowHandle());
+ * ...
+ * toolInput.update(dt);
+ * if (toolInput.getKeyboard().getKeyDown(GLFW.GLFW_KEY_S)) ...
+ * </pre>
+ *
+ * Updating an instance only updates its own devices. Gamepads are not bound
+ * to a window, they are shared and updated by {@link Input#update}.
+ */
+public final class WindowInput implements Updatable, Disposable {
+
+    static final int EVENT_CAPACITY = 1024;
+
+    private final InputEventQueue queue = new InputEventQueue(EVENT_CAPACITY);
+    private final InputEvents events = new InputEvents(EVENT_CAPACITY);
+    private final Mouse mouse = new Mouse(queue, events);
+    private final Keyboard keyboard = new Keyboard(queue, events);
+    private final InputBackend.FocusListener focusHandler = focused -> {
+        keyboard.focusChanged(focused);
+        mouse.focusChanged(focused);
+    };
+
+    private InputBackend backend;
+    private long windowHandle;
+
+    /**
+     * Creates the input of the given GLFW window.
+     *
+     * @param windowHandle GLFW window handle
+     */
+    public WindowInput(long windowHandle) {
+        this(new GlfwInputBackend(), windowHandle);
+    }
+
+    /**
+     * Creates the input of the given window using the given backend.
+     *
+     * @param backend Input backend
+     * @param windowHandle Window handle of the backend
+     */
+    public WindowInput(InputBackend backend, long windowHandle) {
+        init(backend, windowHandle);
+    }
+
+    /**
+     * Creates an instance that is not bound to a window yet.
+     */
+    WindowInput() {
+    }
+
+    void init(InputBackend backend, long windowHandle) {
+        if (this.backend != null && (this.backend != backend || this.windowHandle != windowHandle))
+            dispose();
+        this.backend = backend;
+        this.windowHandle = windowHandle;
+        mouse.init(backend, windowHandle);
+        keyboard.init(backend, windowHandle);
+        backend.setFocusListener(windowHandle, focusHandler);
+    }
+
+    /**
+     * Deliver the pending backend events into the event queue of this window
+     * and collect them as the events of this frame.
+     */
+    void poll() {
+        if (backend != null)
+            backend.poll();
+        queue.drainTo(events);
+    }
+
+    void updateDevices(DeltaTime dt) {
+        mouse.update(dt);
+        keyboard.update(dt);
+    }
+
+    /**
+     * Update the keyboard and mouse of this window for the current frame.
+     *
+     * @param dt delta time
+     */
+    @Override
+    public void update(DeltaTime dt) {
+        poll();
+        updateDevices(dt);
+    }
+
+    /**
+     * Remove the listeners from the window. The devices keep their last
+     * state.
+     */
+    @Override
+    public void dispose() {
+        if (backend == null)
+            return;
+        backend.setKeyListener(windowHandle, null);
+        backend.setCharListener(windowHandle, null);
+        backend.setCursorPosListener(windowHandle, null);
+        backend.setMouseButtonListener(windowHandle, null);
+        backend.setScrollListener(windowHandle, null);
+        backend.setFocusListener(windowHandle, null);
+        backend = null;
+        windowHandle = 0;
+    }
+
+    public InputBackend getBackend() {
+        return backend;
+    }
+
+    public long getWindowHandle() {
+        return windowHandle;
+    }
+
+    public Mouse getMouse() {
+        return mouse;
+    }
+
+    public Keyboard getKeyboard() {
+        return keyboard;
+    }
+
+    /**
+     * Returns the ordered key and mouse button events of the current frame.
+     *
+     * @return Events of the current frame
+     */
+    public InputEvents getEvents() {
+        return events;
+    }
+}
@@ -0,0 +1,302 @@
+package com.gnarfodolfus.pixel.input;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.lwjgl.glfw.GLFW;
+
+class InputCodecTest {
+
+    private static final int FRAMES = 2000;
+    private static final int HISTORY = 8;
+
+    private final InputCodec codec = new InputCodec(8);
+    private final float axisScale = (1 << (codec.getAxisBits() - 1)) - 1;
+    private final ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+    @Test
+    void roundTripWithoutBaseline() {
+        Random random = new Random(1);
+        InputSnapshot frame = new InputSnapshot();
+        InputSnapshot next = new InputSnapshot();
+        InputSnapshot decoded = new InputSnapshot();
+        for (int i = 0; i < FRAMES; i++) {
+            randomize(random, frame, next, i);
+            roundTrip(next, null, decoded);
+            assertSnapshot(next, decoded);
+            InputSnapshot swap = frame;
+            frame = next;
+            next = swap;
+        }
+    }
+
+    @Test
+    void roundTripWithBaseline() {
+        Random random = new Random(2);
+        // Sent frames and the receiver's decoded frames, the baseline is one
+        // of the last frames as if older acknowledgements were lost
+        InputSnapshot[] sent = new InputSnapshot[HISTORY];
+        InputSnapshot[] received = new InputSnapshot[HISTORY];
+        for (int i = 0; i < HISTORY; i++) {
+            sent[i] = new InputSnapshot();
+            received[i] = new InputSnapshot();
+        }
+        sent[0].frame = 0;
+        roundTrip(sent[0], null, received[0]);
+        for (int i = 1; i < FRAMES; i++) {
+            InputSnapshot frame = sent[i % HISTORY];
+            randomize(random, sent[(i - 1) % HISTORY], frame, i);
+            int ago = 1 + random.nextInt(Math.min(i, HISTORY - 1));
+            InputSnapshot baseline = received[(i - ago) % HISTORY];
+            assertSnapshot(sent[(i - ago) % HISTORY], baseline);
+
+            assertEquals(i - ago, encode(frame, baseline));
+            InputSnapshot decoded = received[i % HISTORY];
+            codec.decode(buffer, baseline, decoded);
+            assertFalse(buffer.hasRemaining());
+            assertSnapshot(frame, decoded);
+        }
+    }
+
+    @Test
+    void decodeIntoBaseline() {
+        Random random = new Random(3);
+        InputSnapshot frame = new InputSnapshot();
+        InputSnapshot next = new InputSnapshot();
+        InputSnapshot remote = new InputSnapshot();
+        frame.frame = 0;
+        roundTrip(frame, null, remote);
+        for (int i = 1; i < FRAMES; i++) {
+            randomize(random, frame, next, i);
+            roundTrip(next, remote, remote);
+            assertSnapshot(next, remote);
+            InputSnapshot swap = frame;
+            frame = next;
+            next = swap;
+        }
+    }
+
+    @Test
+    void idleFrame() {
+        InputSnapshot baseline = new InputSnapshot();
+        baseline.frame = 41;
+        baseline.keys.set(GLFW.GLFW_KEY_W);
+        baseline.mouseButtons = 1 << GLFW.GLFW_MOUSE_BUTTON_LEFT;
+        baseline.mouseX = 400.0;
+        baseline.padsConnected = 1;
+        baseline.padButtons[0] = 1 << GLFW.GLFW_GAMEPAD_BUTTON_A;
+        baseline.padAxes[GLFW.GLFW_GAMEPAD_AXIS_LEFT_X] = quantized(0.5f);
+        InputSnapshot frame = new InputSnapshot();
+        frame.copy(baseline);
+        frame.frame = 42;
+
+        InputSnapshot decoded = new InputSnapshot();
+        roundTrip(frame, baseline, decoded);
+        assertEquals(3, buffer.limit()); // frame, distance and flags
+        assertSnapshot(frame, decoded);
+    }
+
+    @Test
+    void edgesOnly() {
+        // Keys, buttons and pad buttons pressed and released within one
+        // frame have edges but do not change the state
+        InputSnapshot baseline = new InputSnapshot();
+        baseline.frame = 10;
+        baseline.keys.set(GLFW.GLFW_KEY_A);
+        baseline.padsConnected = 1 << 1;
+        InputSnapshot frame = new InputSnapshot();
+        frame.copy(baseline);
+        frame.frame = 11;
+        frame.keysDown.set(GLFW.GLFW_KEY_SPACE);
+        frame.keysUp.set(GLFW.GLFW_KEY_SPACE);
+        frame.keysDown.set(GLFW.GLFW_KEY_A);
+        frame.keysUp.set(GLFW.GLFW_KEY_A);
+        frame.mouseButtonsDown = 1 << GLFW.GLFW_MOUSE_BUTTON_RIGHT;
+        frame.mouseButtonsUp = 1 << GLFW.GLFW_MOUSE_BUTTON_RIGHT;
+        frame.padButtonsDown[1] = 1 << GLFW.GLFW_GAMEPAD_BUTTON_X;
+        frame.padButtonsUp[1] = 1 << GLFW.GLFW_GAMEPAD_BUTTON_X;
+
+        InputSnapshot decoded = new InputSnapshot();
+        roundTrip(frame, baseline, decoded);
+        assertSnapshot(frame, decoded);
+        assertTrue(decoded.getKeyDown(GLFW.GLFW_KEY_SPACE));
+        assertTrue(decoded.getKeyUp(GLFW.GLFW_KEY_SPACE));
+        assertFalse(decoded.getKey(GLFW.GLFW_KEY_SPACE));
+        assertTrue(decoded.getKey(GLFW.GLFW_KEY_A));
+
+        roundTrip(frame, null, decoded);
+        assertSnapshot(frame, decoded);
+
+        // The next frame has no edges
+        InputSnapshot next = new InputSnapshot();
+        next.copy(baseline);
+        next.frame = 12;
+        roundTrip(next, frame, decoded);
+        assertSnapshot(next, decoded);
+    }
+
+    @Test
+    void padDisconnect() {
+        InputSnapshot baseline = new InputSnapshot();
+        baseline.frame = 20;
+        baseline.padsConnected = (1 << 2) | (1 << 3);
+        baseline.padButtons[2] = (1 << GLFW.GLFW_GAMEPAD_BUTTON_A) | (1 << GLFW.GLFW_GAMEPAD_BUTTON_DPAD_UP);
+        baseline.padAxes[2 * InputSnapshot.AXES + GLFW.GLFW_GAMEPAD_AXIS_RIGHT_Y] = quantized(-0.75f);
+        baseline.padAxes[2 * InputSnapshot.AXES + GLFW.GLFW_GAMEPAD_AXIS_LEFT_TRIGGER] = quantized(1f);
+
+        // Pad 2 disconnects and releases everything
+        InputSnapshot frame = new InputSnapshot();
+        frame.copy(baseline);
+        frame.frame = 21;
+        frame.padsConnected = 1 << 3;
+        frame.padButtons[2] = 0;
+        frame.padButtonsUp[2] = baseline.padButtons[2];
+        for (int i = 0; i < InputSnapshot.AXES; i++)
+            frame.padAxes[2 * InputSnapshot.AXES + i] = 0f;
+
+        InputSnapshot decoded = new InputSnapshot();
+        roundTrip(frame, baseline, decoded);
+        assertSnapshot(frame, decoded);
+        assertFalse(decoded.isGamePadConnected(2));
+        assertTrue(decoded.isGamePadConnected(3));
+
+        // Pad 3 disconnects without any state, only the mask changes
+        InputSnapshot next = new InputSnapshot();
+        next.copy(frame);
+        next.frame = 22;
+        next.padsConnected = 0;
+        next.padButtonsUp[2] = 0;
+        roundTrip(next, decoded, decoded);
+        assertSnapshot(next, decoded);
+        assertFalse(decoded.isGamePadConnected(3));
+    }
+
+    @Test
+    void baselineMismatch() {
+        InputSnapshot baseline = new InputSnapshot();
+        baseline.frame = 5;
+        InputSnapshot frame = new InputSnapshot();
+        frame.frame = 7;
+        encode(frame, baseline);
+        InputSnapshot other = new InputSnapshot();
+        other.frame = 6;
+        assertThrows(IllegalStateException.class, () -> codec.decode(buffer, other, new InputSnapshot()));
+        assertThrows(IllegalArgumentException.class, () -> codec.encode(baseline, frame, buffer));
+    }
+
+    private long encode(InputSnapshot frame, InputSnapshot baseline) {
+        buffer.clear();
+        codec.encode(frame, baseline, buffer);
+        buffer.flip();
+        return InputCodec.getBaselineFrame(buffer);
+    }
+
+    private void roundTrip(InputSnapshot frame, InputSnapshot baseline, InputSnapshot out) {
+        assertEquals(baseline != null ? baseline.frame : -1L, encode(frame, baseline));
+        codec.decode(buffer, baseline, out);
+        assertFalse(buffer.hasRemaining());
+    }
+
+    /**
+     * Derive the next frame from the previous one. Edges mostly follow the
+     * state change, some frames have additional edges of presses and
+     * releases within the frame.
+     */
+    private void randomize(Random random, InputSnapshot last, InputSnapshot out, long frame) {
+        out.copy(last);
+        out.frame = frame;
+
+        for (int n = random.nextInt(4); n > 0; n--) {
+            int key = random.nextInt(Keyboard.KEYBOARD_SIZE);
+            out.keys.set(key, !out.keys.get(key));
+        }
+        out.keysDown.andNot(out.keys, last.keys);
+        out.keysUp.andNot(last.keys, out.keys);
+        if (random.nextInt(8) == 0) {
+            int key = random.nextInt(Keyboard.KEYBOARD_SIZE);
+            out.keysDown.set(key);
+            out.keysUp.set(key);
+        }
+
+        if (random.nextBoolean())
+            out.mouseButtons ^= 1 << random.nextInt(GLFW.GLFW_MOUSE_BUTTON_LAST + 1);
+        out.mouseButtonsDown = out.mouseButtons & ~last.mouseButtons;
+        out.mouseButtonsUp = last.mouseButtons & ~out.mouseButtons;
+        if (random.nextInt(8) == 0) {
+            int tap = 1 << random.nextInt(GLFW.GLFW_MOUSE_BUTTON_LAST + 1);
+            out.mouseButtonsDown |= tap;
+            out.mouseButtonsUp |= tap;
+        }
+
+        // Whole pixels, the wire format has float precision
+        out.movementX = random.nextBoolean() ? random.nextInt(21) - 10 : 0;
+        out.movementY = random.nextBoolean() ? random.nextInt(21) - 10 : 0;
+        out.mouseX = last.mouseX + out.movementX;
+        out.mouseY = last.mouseY + out.movementY;
+        out.scrollX = random.nextInt(8) == 0 ? random.nextInt(3) - 1 : 0f;
+        out.scrollY = random.nextInt(4) == 0 ? random.nextInt(3) - 1 : 0f;
+
+        for (int jid = 0; jid < InputSnapshot.PADS; jid++) {
+            int bit = 1 << jid;
+            if (random.nextInt(32) == 0)
+                out.padsConnected ^= bit;
+            int offset = jid * InputSnapshot.AXES;
+            int lastButtons = last.padButtons[jid];
+            if ((out.padsConnected & bit) == 0) {
+                out.padButtons[jid] = 0;
+                for (int i = 0; i < InputSnapshot.AXES; i++)
+                    out.padAxes[offset + i] = 0f;
+            } else {
+                if (random.nextBoolean())
+                    out.padButtons[jid] ^= 1 << random.nextInt(GamePad.BUTTONS_COUNT);
+                for (int i = 0; i < InputSnapshot.AXES; i++)
+                    if (random.nextInt(4) == 0)
+                        out.padAxes[offset + i] = quantized(random.nextFloat() * 2f - 1f);
+            }
+            out.padButtonsDown[jid] = out.padButtons[jid] & ~lastButtons;
+            out.padButtonsUp[jid] = lastButtons & ~out.padButtons[jid];
+            if ((out.padsConnected & bit) != 0 && random.nextInt(16) == 0) {
+                int tap = 1 << random.nextInt(GamePad.BUTTONS_COUNT);
+                out.padButtonsDown[jid] |= tap;
+                out.padButtonsUp[jid] |= tap;
+            }
+        }
+    }
+
+    /**
+     * Returns the value the codec decodes for the given axis value, so the
+     * round trip is exact.
+     */
+    private float quantized(float value) {
+        return Math.round(value * axisScale) / axisScale;
+    }
+
+    private static void assertSnapshot(InputSnapshot expected, InputSnapshot actual) {
+        long frame = expected.frame;
+        assertEquals(expected.frame, actual.frame, "frame");
+        assertBits(expected.keys, actual.keys, frame, "keys");
+        assertBits(expected.keysDown, actual.keysDown, frame, "keysDown");
+        assertBits(expected.keysUp, actual.keysUp, frame, "keysUp");
+        assertEquals(expected.mouseX, actual.mouseX, "mouseX in frame " + frame);
+        assertEquals(expected.mouseY, actual.mouseY, "mouseY in frame " + frame);
+        assertEquals(expected.movementX, actual.movementX, "movementX in frame " + frame);
+        assertEquals(expected.movementY, actual.movementY, "movementY in frame " + frame);
+        assertEquals(expected.scrollX, actual.scrollX, "scrollX in frame " + frame);
+        assertEquals(expected.scrollY, actual.scrollY, "scrollY in frame " + frame);
+        assertEquals(expected.mouseButtons, actual.mouseButtons, "mouseButtons in frame " + frame);
+        assertEquals(expected.mouseButtonsDown, actual.mouseButtonsDown, "mouseButtonsDown in frame " + frame);
+        assertEquals(expected.mouseButtonsUp, actual.mouseButtonsUp, "mouseButtonsUp in frame " + frame);
+        assertEquals(expected.padsConnected, actual.padsConnected, "padsConnected in frame " + frame);
+        assertArrayEquals(expected.padButtons, actual.padButtons, "padButtons in frame " + frame);
+        assertArrayEquals(expected.padButtonsDown, actual.padButtonsDown, "padButtonsDown in frame " + frame);
+        assertArrayEquals(expected.padButtonsUp, actual.padButtonsUp, "padButtonsUp in frame " + frame);
+        assertArrayEquals(expected.padAxes, actual.padAxes, "padAxes in frame " + frame);
+    }
+
+    private static void assertBits(FixedBitSet expected, FixedBitSet actual, long frame, String name) {
+        for (int i = 0; i < expected.getWordCount(); i++)
+            assertEquals(expected.getWord(i), actual.getWord(i), name + " word " + i + " in frame " + frame);
+    }
+}